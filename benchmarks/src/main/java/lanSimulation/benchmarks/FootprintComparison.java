@@ -0,0 +1,103 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import lanSimulation.Network;
+import lanSimulation.internals.CompactRing;
+import lanSimulation.internals.NodeIndex;
+
+/**
+Measures the heap retained by a token ring held as a {@link Network} (the graph of Node objects and its
+index) and as a {@link CompactRing}, for the token ring of {@link RingState#build(int)}, and reports the
+bytes per node of both and their ratio. The names are shared by both representations, so they are built
+before measuring and not counted.
+<pre>
+    java -cp benchmarks/target/benchmarks.jar lanSimulation.benchmarks.FootprintComparison [ringSize ...]
+</pre>
+ */
+public class FootprintComparison {
+	private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+	/**
+    Holds what is being measured; in static fields so the JIT cannot drop it before it is measured.
+	 */
+	private static Object measured;
+	private static String[] names;
+	private static byte[] types;
+
+	public static void main(String[] args) {
+		int[] sizes = {100000, 1000000, 10000000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		};
+		for (int size : sizes) {
+			compare(size);
+		}
+	}
+
+	/**
+	 * Mide las dos representaciones de un token ring del tamaño indicado y escribe el resultado
+	 */
+	private static void compare(int size) {
+		Network network = RingState.build(size);
+		NodeIndex index = network.index();
+		names = new String[size];
+		types = new byte[size];
+		for (int i = 0; i < size; i++) {
+			names[i] = index.nodeAt(i).name_;
+			types[i] = NodeIndex.typeOf(index.nodeAt(i));
+		}
+		measured = network;
+		long withNetwork = usedHeap();
+		measured = null;
+		long withNames = usedHeap();
+		CompactRing compact = new CompactRing(size);
+		for (int i = 0; i < size; i++) {
+			compact.append(names[i], types[i]);
+		}
+		measured = compact;
+		long withCompact = usedHeap();
+		measured = null;
+
+		long graph = withNetwork - withNames, arrays = withCompact - withNames;
+		System.out.print(size + " nodes: object graph " + graph / size + " bytes/node, compact ring ");
+		System.out.print(arrays / size + " bytes/node, ratio " + String.format("%.1f", (double) graph / arrays));
+		System.out.println(" (" + compact.size() + " nodes, " + names.length + " names)");
+	}
+
+	/**
+	 * @return bytes ocupados en el heap tras recolectar la basura
+	 */
+	private static long usedHeap() {
+		long used = Long.MAX_VALUE;
+		//a full collection may leave garbage behind, so take the lowest of several
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+		}
+		return used;
+	}
+}
@@ -0,0 +1,87 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.benchmarks;
+
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+Benchmarks of the requests and the verification of a <em>Network</em>, per ring size.
+Reports go to a CountingReportSink, so only the cost of handling the request is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+	@Benchmark
+	public boolean requestWorkstationPrintsDocument(RingState ring) {
+		return ring.network.requestWorkstationPrintsDocument("ws0", "!PS author:Serge.title:Hello.", "printer", ring.sink);
+	}
+
+	@Benchmark
+	public boolean requestWorkstationPrintsDocumentUnknown(RingState ring) {
+		return ring.network.requestWorkstationPrintsDocument("ws0", "Hello World", "UnknownPrinter", ring.sink);
+	}
+
+	@Benchmark
+	public boolean requestBroadcast(RingState ring) {
+		return ring.network.requestBroadcast(ring.sink);
+	}
+
+	@Benchmark
+	public boolean requestBroadcastInParallel(RingState ring) {
+		return ring.network.requestBroadcast(ring.sink, ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public int requestBroadcastReport(RingState ring) {
+		StringWriter report = new StringWriter();
+		ring.network.requestBroadcast(report);
+		return report.getBuffer().length();
+	}
+
+	@Benchmark
+	public int requestBroadcastReportInParallel(RingState ring) {
+		StringWriter report = new StringWriter();
+		ring.network.requestBroadcast(report, ForkJoinPool.commonPool());
+		return report.getBuffer().length();
+	}
+
+	@Benchmark
+	public boolean consistentNetwork(RingState ring) {
+		return ring.network.consistentNetwork();
+	}
+
+	@Benchmark
+	public boolean isConsistent(RingState ring) {
+		return ring.network.isConsistent();
+	}
+}
@@ -0,0 +1,82 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import lanSimulation.internals.CountingReportSink;
+import lanSimulation.internals.Node;
+import lanSimulation.internals.Packet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+Benchmarks of delivering a packet to a printer, per document size and kind. The author and
+title of a postscript document are put at its end, so the header parser scans the whole document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PacketBenchmark {
+	@Param({"16", "1024", "65536", "1048576", "8388608"})
+	public int documentSize;
+
+	@Param({"postscript", "ascii"})
+	public String kind;
+
+	private Packet packet_;
+	private Node printer_;
+	private CountingReportSink sink_;
+
+	@Setup
+	public void setUp() {
+		StringBuilder document = new StringBuilder(documentSize);
+		String header = "author:Serge.title:Hello.";
+		if (kind.equals("postscript")) {document.append("!PS ");};
+		while (document.length() < documentSize - header.length()) {
+			document.append('x');
+		}
+		if (kind.equals("postscript")) {document.append(header);};
+		while (document.length() < documentSize) {
+			document.append('x');
+		}
+		printer_ = new Node().new Printer("printer");
+		packet_ = new Packet(document.toString(), "ws0", "printer");
+		sink_ = new CountingReportSink();
+	}
+
+	@Benchmark
+	public boolean print() {
+		return packet_.print(printer_, sink_);
+	}
+}
@@ -0,0 +1,77 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+Benchmarks of the text, HTML and XML renderings of a token ring, per ring size.
+Each rendering is written to a reused StringBuilder, so the measured allocation is the one
+of the rendering itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+	@State(Scope.Thread)
+	public static class Output {
+		public StringBuilder buf;
+
+		@Setup
+		public void setUp(RingState ring) {
+			buf = new StringBuilder(ring.ringSize * 40);
+		}
+	}
+
+	@Benchmark
+	public int printOn(RingState ring, Output out) throws IOException {
+		out.buf.setLength(0);
+		ring.network.firstNode_.printOn(out.buf);
+		return out.buf.length();
+	}
+
+	@Benchmark
+	public int printHTMLOn(RingState ring, Output out) throws IOException {
+		out.buf.setLength(0);
+		ring.network.firstNode_.printHTMLOn(out.buf);
+		return out.buf.length();
+	}
+
+	@Benchmark
+	public int printXMLOn(RingState ring, Output out) throws IOException {
+		out.buf.setLength(0);
+		ring.network.firstNode_.printXMLOn(out.buf);
+		return out.buf.length();
+	}
+}
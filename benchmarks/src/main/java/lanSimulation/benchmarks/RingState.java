@@ -0,0 +1,72 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lanSimulation.Network;
+import lanSimulation.internals.Node;
+import lanSimulation.internals.CountingReportSink;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+A token ring of #ringSize nodes shared by the benchmarks of one trial: a workstation "ws0" first,
+a printer "printer" last, and plain nodes with a workstation every tenth node in between,
+so a print request from "ws0" travels the whole token ring.
+ */
+@State(Scope.Benchmark)
+public class RingState {
+	@Param({"4", "1000", "100000", "1000000"})
+	public int ringSize;
+
+	public Network network;
+	public CountingReportSink sink;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		network = build(ringSize);
+		sink = new CountingReportSink();
+		assert network.consistentNetwork();
+	}
+
+	/**
+	 * Construye un token ring del tamaño indicado
+	 * @param size número de nodos, al menos 2
+	 * @return red con el token ring
+	 */
+	public static Network build(int size) {
+		List<Node> nodes = new ArrayList<Node>(size);
+		Node outer = new Node();
+		nodes.add(outer.new Workstation("ws0"));
+		for (int i = 1; i < size - 1; i++) {
+			nodes.add((i % 10 == 0) ? outer.new Workstation("ws" + i) : new Node("n" + i));
+		}
+		nodes.add(outer.new Printer("printer"));
+		Network network = Network.fromNodes(nodes);
+		network.index();
+		return network;
+	}
+}
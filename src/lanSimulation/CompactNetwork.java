@@ -0,0 +1,137 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+A <em>CompactNetwork</em> handles print and broadcast requests on a {@link CompactRing}, the token ring
+held in primitive arrays instead of a graph of <em>Node</em> objects, for token rings too large for the
+object graph. A request produces the same events, and so the same report, as on a {@link Network} with
+the same token ring; there are no spools, ledger or metrics.
+ */
+public class CompactNetwork {
+	/**
+    Holds the token ring on which the requests travel.
+	 */
+	private final CompactRing ring_;
+
+	/**
+Construct a <em>CompactNetwork</em> on #ring.
+<p><strong>Precondition:</strong> ring.isConsistent();</p>
+	 */
+	public CompactNetwork(CompactRing ring) {
+		assert ring.isConsistent();
+		ring_ = ring;
+	}
+
+	/**
+Answer a <em>CompactNetwork</em> with the current token ring of #network.
+<p><strong>Precondition:</strong> network.isConsistent();</p>
+	 */
+	public static CompactNetwork from(Network network) {
+		return new CompactNetwork(CompactRing.from(network.index()));
+	}
+
+	public CompactRing ring() {
+		return ring_;
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer,
+see {@link Network#requestWorkstationPrintsDocument(String, String, String, Writer)}.
+<p><strong>Precondition:</strong> #workstation is a workstation on the token ring;</p>
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, Writer report) {
+		return requestWorkstationPrintsDocument(workstation, document, printer, new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer,
+see {@link Network#requestWorkstationPrintsDocument(String, String, String, ReportSink)}.
+<p><strong>Precondition:</strong> #workstation is a workstation on the token ring;</p>
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, ReportSink report) {
+		int origin = ring_.positionOf(workstation);
+		assert (origin >= 0) && (ring_.typeOf(origin) == NodeIndex.WORKSTATION);
+
+		report.printRequested(workstation, document, printer);
+		int destination = ring_.positionOf(printer);
+		if (destination < 0) {
+			report.deliveryFailed(ReportSink.DESTINATION_NOT_FOUND);
+			return false;
+		} else if (ring_.typeOf(destination) != NodeIndex.PRINTER) {
+			report.deliveryFailed(ReportSink.DESTINATION_NOT_A_PRINTER);
+			return false;
+		};
+		if (ring_.route(origin, destination, report) != destination) {
+			report.deliveryFailed(ReportSink.DESTINATION_NOT_FOUND);
+			return false;
+		};
+		DocumentHeader header = DocumentHeader.forThread().parse(document);
+		try {
+			report.accounting(header.author(), header.title(), header.isPostscript());
+		} finally {
+			header.clear();
+		}
+		return true;
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes, see {@link Network#requestBroadcast(Writer)}.
+	 */
+	public boolean requestBroadcast(Writer report) {
+		return requestBroadcast(new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes, see {@link Network#requestBroadcast(ReportSink)}.
+	 */
+	public boolean requestBroadcast(ReportSink report) {
+		report.broadcastRequested();
+		int pos = 0;
+		do {
+			report.broadcastAccepted(ring_.nameOf(pos));
+			report.hop(ring_.nameOf(pos));
+			pos = ring_.next(pos);
+		} while (pos != 0);
+		report.broadcastCompleted();
+		return true;
+	}
+
+	/**
+Answer whether #receiver is a consistent token ring network, see {@link Network#consistentNetwork()}.
+	 */
+	public boolean isConsistent() {
+		return ring_.isConsistent();
+	}
+
+	/**
+Write a printable representation of #receiver on #out, the same as {@link Node#printOn(Appendable)}.
+	 */
+	public void printOn(Appendable out) throws IOException {
+		ring_.printOn(out);
+	}
+}
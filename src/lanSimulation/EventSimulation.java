@@ -0,0 +1,275 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+An <em>EventSimulation</em> simulates requests on a <em>Network</em> in simulated time.
+Every hop of a packet, every acceptance of a broadcast packet and every print job is an event
+on a time ordered queue. Each node takes a forwarding delay to pass a packet on and each printer
+takes a service time per job, during which later jobs for that printer wait.
+After {@link #run()} the simulated end-to-end latency of every request is known.
+<p>The simulation works on the snapshot of the token ring taken by {@link #run()}.</p>
+ */
+public class EventSimulation {
+	/**
+	 * Tipos de evento
+	 */
+	private static final byte START = 0, HOP = 1, ACCEPT = 2, PRINT = 3;
+	/**
+	 * Estado de una petición
+	 */
+	private static final byte PENDING = 0, SUCCEEDED = 1, FAILED = 2;
+
+	private final Network network_;
+	private final EventQueue queue_;
+	private long forwardingDelay_, serviceTime_;
+	private final Map<String, Long> nodeDelays_, printerServiceTimes_;
+
+	/**
+    Holds the requests, one entry per request id.
+	 */
+	private String[] origins_, destinations_;
+	private long[] submitted_, completed_;
+	private byte[] status_;
+	private int requests_;
+
+	/**
+    Holds the simulation state while running, indexed by ring position.
+	 */
+	private int[] originPos_, destinationPos_;
+	private long[] delays_, serviceTimes_, printerFreeAt_;
+	private long now_, events_;
+
+	/**
+Construct an <em>EventSimulation</em> on #network, where every node forwards a packet in #forwardingDelay
+and every printer handles a job in #serviceTime.
+<p><strong>Precondition:</strong> network.isInitialized() & forwardingDelay >= 0 & serviceTime >= 0;</p>
+	 */
+	public EventSimulation(Network network, long forwardingDelay, long serviceTime) {
+		assert network.isInitialized() & (forwardingDelay >= 0) & (serviceTime >= 0);
+		network_ = network;
+		queue_ = new EventQueue(1024);
+		forwardingDelay_ = forwardingDelay;
+		serviceTime_ = serviceTime;
+		nodeDelays_ = new HashMap<String, Long>();
+		printerServiceTimes_ = new HashMap<String, Long>();
+		origins_ = new String[16];
+		destinations_ = new String[16];
+		submitted_ = new long[16];
+		completed_ = new long[16];
+		status_ = new byte[16];
+		requests_ = 0;
+	}
+
+	/**
+	 * Fija el tiempo que tarda un nodo concreto en pasar un paquete al siguiente
+	 * @param node nombre del nodo
+	 * @param delay tiempo simulado de reenvío
+	 */
+	public void setForwardingDelay(String node, long delay) {
+		assert delay >= 0;
+		nodeDelays_.put(node, Long.valueOf(delay));
+	}
+
+	/**
+	 * Fija el tiempo que tarda una impresora concreta en atender un trabajo
+	 * @param printer nombre de la impresora
+	 * @param serviceTime tiempo simulado de impresión
+	 */
+	public void setServiceTime(String printer, long serviceTime) {
+		assert serviceTime >= 0;
+		printerServiceTimes_.put(printer, Long.valueOf(serviceTime));
+	}
+
+	/**
+Schedule a request by #workstation to print a document on #printer at simulated time #at.
+<p><strong>Precondition:</strong> network.hasWorkstation(workstation) & at >= 0;</p>
+@return the id of the request
+	 */
+	public int schedulePrint(long at, String workstation, String printer) {
+		assert network_.hasWorkstation(workstation) & (at >= 0);
+		return addRequest(at, workstation, printer);
+	}
+
+	/**
+Schedule a broadcast request at simulated time #at.
+<p><strong>Precondition:</strong> at >= 0;</p>
+@return the id of the request
+	 */
+	public int scheduleBroadcast(long at) {
+		assert at >= 0;
+		return addRequest(at, null, null);
+	}
+
+	private int addRequest(long at, String origin, String destination) {
+		if (requests_ == status_.length) {
+			int capacity = requests_ * 2;
+			origins_ = Arrays.copyOf(origins_, capacity);
+			destinations_ = Arrays.copyOf(destinations_, capacity);
+			submitted_ = Arrays.copyOf(submitted_, capacity);
+			completed_ = Arrays.copyOf(completed_, capacity);
+			status_ = Arrays.copyOf(status_, capacity);
+		};
+		int request = requests_++;
+		origins_[request] = origin;
+		destinations_[request] = destination;
+		submitted_[request] = at;
+		status_[request] = PENDING;
+		queue_.schedule(at, START, request, 0);
+		return request;
+	}
+
+	/**
+Process all scheduled events in order of simulated time.
+<p><strong>Precondition:</strong> network.isConsistent();</p>
+@return the simulated time of the last event
+	 */
+	public long run() {
+		assert network_.isConsistent();
+		NodeIndex ring = network_.index();
+		prepare(ring);
+		while (! queue_.isEmpty()) {
+			queue_.poll();
+			now_ = queue_.polledTime();
+			events_++;
+			int request = queue_.polledRequest(), pos = queue_.polledPosition();
+			switch (queue_.polledKind()) {
+			case START:
+				start(ring, request);
+				break;
+			case ACCEPT:
+				queue_.schedule(now_, HOP, request, pos);
+				break;
+			case HOP:
+				hop(ring, request, pos);
+				break;
+			case PRINT:
+				//the job waits until the printer finished the jobs that arrived before it
+				long begin = Math.max(now_, printerFreeAt_[pos]);
+				printerFreeAt_[pos] = begin + serviceTimes_[pos];
+				complete(request, printerFreeAt_[pos], SUCCEEDED);
+				break;
+			};
+		}
+		return now_;
+	}
+
+	/**
+	 * Prepara los datos de la simulación indexados por posición en el token ring
+	 * @param ring versión del token ring sobre la que se simula
+	 */
+	private void prepare(NodeIndex ring) {
+		int size = ring.size();
+		delays_ = new long[size];
+		serviceTimes_ = new long[size];
+		printerFreeAt_ = new long[size];
+		for (int i = 0; i < size; i++) {
+			Long delay = nodeDelays_.get(ring.nodeAt(i).name_);
+			Long service = printerServiceTimes_.get(ring.nodeAt(i).name_);
+			delays_[i] = (delay == null) ? forwardingDelay_ : delay.longValue();
+			serviceTimes_[i] = (service == null) ? serviceTime_ : service.longValue();
+		}
+		if ((originPos_ == null) || (originPos_.length < status_.length)) {
+			originPos_ = new int[status_.length];
+			destinationPos_ = new int[status_.length];
+		};
+	}
+
+	/**
+	 * Evento inicial de una petición: resuelve origen y destino y envía el paquete
+	 */
+	private void start(NodeIndex ring, int request) {
+		if (origins_[request] == null) {//broadcast
+			originPos_[request] = 0;
+			destinationPos_[request] = 0;
+			queue_.schedule(now_, ACCEPT, request, 0);
+			return;
+		};
+		originPos_[request] = ring.positionOf(origins_[request]);
+		destinationPos_[request] = ring.positionOf(destinations_[request]);
+		if (ring.typeOf(destinations_[request]) != NodeIndex.PRINTER) {
+			complete(request, now_, FAILED);
+		} else {
+			queue_.schedule(now_, HOP, request, originPos_[request]);
+		};
+	}
+
+	/**
+	 * Evento de un nodo que pasa el paquete al siguiente nodo del token ring
+	 */
+	private void hop(NodeIndex ring, int request, int pos) {
+		int next = ring.nextPosition(pos);
+		long arrival = now_ + delays_[pos];
+		if (origins_[request] == null) {//broadcast
+			if (next == destinationPos_[request]) {
+				complete(request, arrival, SUCCEEDED);
+			} else {
+				queue_.schedule(arrival, ACCEPT, request, next);
+			};
+		} else if (next == destinationPos_[request]) {
+			queue_.schedule(arrival, PRINT, request, next);
+		} else if (next == originPos_[request]) {
+			complete(request, arrival, FAILED);
+		} else {
+			queue_.schedule(arrival, HOP, request, next);
+		};
+	}
+
+	private void complete(int request, long time, byte status) {
+		completed_[request] = time;
+		status_[request] = status;
+	}
+
+	/**
+	 * @return número de peticiones programadas
+	 */
+	public int requestCount() {
+		return requests_;
+	}
+
+	/**
+	 * @return número de eventos procesados
+	 */
+	public long eventCount() {
+		return events_;
+	}
+
+	/**
+	 * @param request id de la petición
+	 * @return true si la petición terminó con éxito
+	 */
+	public boolean succeeded(int request) {
+		return status_[request] == SUCCEEDED;
+	}
+
+	/**
+	 * @param request id de la petición
+	 * @return latencia simulada de extremo a extremo, -1 si la petición no ha terminado
+	 */
+	public long latencyOf(int request) {
+		return (status_[request] == PENDING) ? -1 : completed_[request] - submitted_[request];
+	}
+}
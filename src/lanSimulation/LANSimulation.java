@@ -22,6 +22,12 @@ package lanSimulation;
 import lanSimulation.tests.*;
 import java.lang.AssertionError;
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class LANSimulation {
 
@@ -30,94 +36,211 @@ public class LANSimulation {
 	}
 
 	public static void simulate () {
+		simulate(System.out);
+	}
+
+	/**
+	 * Ejecuta una simulación completa sobre la red de ejemplo
+	 * @param out donde se escribe la salida de la simulación
+	 */
+	public static void simulate (PrintStream out) {
 		Network network = Network.DefaultExample();
 		StringWriter report = new StringWriter(100);
 		StringBuffer buf = new StringBuffer(100);
 
-		System.out.print("siumlate on Network: ");
-		System.out.println(network);
-		System.out.println();
+		out.print("siumlate on Network: ");
+		out.println(network);
+		out.println();
 
 		network.firstNode_.printHTMLOn(buf);
-		System.out.println("---------------------------------HTML------------------------------------------");
-		System.out.println(buf.toString());
-		System.out.println();
+		out.println("---------------------------------HTML------------------------------------------");
+		out.println(buf.toString());
+		out.println();
 
 		buf.setLength(0);
 		network.firstNode_.printXMLOn(buf);
-		System.out.println("---------------------------------XML------------------------------------------");
-		System.out.println(buf.toString());
-		System.out.println();
+		out.println("---------------------------------XML------------------------------------------");
+		out.println(buf.toString());
+		out.println();
 
-		System.out.println("---------------------------------SCENARIOS------------------------------------------");
+		out.println("---------------------------------SCENARIOS------------------------------------------");
 		String document = "author: FILIP   Hello World";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		out.print("'Filip' prints '" + document + "' on 'Andy': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
+		out.println(" (expects true);");
 
-		System.out.print("'Filip' prints '" + document + "' on 'UnknownPrinter': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "UnknownPrinter", report));
-		System.out.println(" (expects false);");
+		out.print("'Filip' prints '" + document + "' on 'UnknownPrinter': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "UnknownPrinter", report));
+		out.println(" (expects false);");
 
-		System.out.print("'Filip' prints '" + document + "' on 'Hans': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Hans", report));
-		System.out.println(" (expects false);");
+		out.print("'Filip' prints '" + document + "' on 'Hans': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Hans", report));
+		out.println(" (expects false);");
 
-		System.out.print("'Filip' prints '" + document + "' on 'n1': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "n1", report));
-		System.out.println(" (expects false);");
+		out.print("'Filip' prints '" + document + "' on 'n1': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "n1", report));
+		out.println(" (expects false);");
 
 		document = "Hello World";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		out.print("'Filip' prints '" + document + "' on 'Andy': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
+		out.println(" (expects true);");
 
 		document = "!PS Hello World in postscript.author:Filip.title:Hello.";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		out.print("'Filip' prints '" + document + "' on 'Andy': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
+		out.println(" (expects true);");
 
-		System.out.print("'Filip' prints '" + document + "' on 'Hans': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Hans", report));
-		System.out.println(" (expects false);");
+		out.print("'Filip' prints '" + document + "' on 'Hans': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Hans", report));
+		out.println(" (expects false);");
 
 		document = "!PS Hello World in postscript.Author:Filip.Title:Hello.";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		out.print("'Filip' prints '" + document + "' on 'Andy': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
+		out.println(" (expects true);");
 
 		document = "!PS Hello World in postscript.author:Filip;title:Hello;";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		out.print("'Filip' prints '" + document + "' on 'Andy': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
+		out.println(" (expects true);");
 
 		document = "!PS Hello World in postscript.author:.title:.";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		out.print("'Filip' prints '" + document + "' on 'Andy': ");
+		out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
+		out.println(" (expects true);");
 
 		try {
-			System.out.print("'UnknownWorkstation' prints 'does not matter' on 'does not matter': ");
-			System.out.print(network.requestWorkstationPrintsDocument("UnknownWorkstation",
+			out.print("'UnknownWorkstation' prints 'does not matter' on 'does not matter': ");
+			out.print(network.requestWorkstationPrintsDocument("UnknownWorkstation",
 					"does not matter", "does not matter", report));
-			System.out.println(" (??? no exception);");
+			out.println(" (??? no exception);");
 		} catch (AssertionError e1) {
-			System.out.println("exception (as expected);");
+			out.println("exception (as expected);");
 		};
 
-		System.out.print("BROADCAST REQUEST: ");
-		System.out.print(network.requestBroadcast(report));
-		System.out.println(" (expects true);");
+		out.print("BROADCAST REQUEST: ");
+		out.print(network.requestBroadcast(report));
+		out.println(" (expects true);");
+
+		out.println(); out.println(); out.println();
+		out.println("---------------------------------REPORT------------------------------------------");
+		out.println(report.toString());
+	}
+
+	/**
+	 * Ejecuta varias simulaciones en paralelo en la salida estándar y escribe cuánto han tardado,
+	 * salvo si se interrumpe
+	 * @param nrOfIters número de simulaciones
+	 * @param nrOfThreads número de hilos que ejecutan las simulaciones, al menos 1
+	 */
+	public static void simulateInParallel (int nrOfIters, int nrOfThreads) {
+		long start = System.nanoTime();
+		if (! simulateInParallel(nrOfIters, nrOfThreads, System.out)) {return;};
+		long elapsed = System.nanoTime() - start;
+		System.out.flush();
+		System.err.print("Simulated " + nrOfIters + " iterations on " + nrOfThreads + " threads in ");
+		System.err.print(elapsed / 1000000 + " ms (");
+		System.err.println((long) (nrOfIters / (elapsed / 1e9)) + " iterations/s)");
+	}
+
+	/**
+	 * Ejecuta varias simulaciones en paralelo; la salida de cada iteración se escribe en orden,
+	 * la misma que si se ejecutaran una tras otra
+	 * @param nrOfIters número de simulaciones
+	 * @param nrOfThreads número de hilos que ejecutan las simulaciones, al menos 1
+	 * @param out donde se escribe la salida de las simulaciones
+	 * @return false si se ha interrumpido antes de terminar
+	 */
+	public static boolean simulateInParallel (int nrOfIters, int nrOfThreads, PrintStream out) {
+		assert nrOfThreads > 0;
+		ExecutorService executor = Executors.newFixedThreadPool(nrOfThreads);
+		//bounds the number of finished iterations waiting to be written
+		int window = nrOfThreads * 4;
+		ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>(window);
+		Callable<String> iteration = new Callable<String>() {
+			public String call() throws UnsupportedEncodingException {
+				ByteArrayOutputStream buf = new ByteArrayOutputStream(8192);
+				simulate(new PrintStream(buf, false, "UTF-8"));
+				return buf.toString("UTF-8");
+			}
+		};
+		try {
+			int submitted = 0;
+			for (; (submitted < nrOfIters) && (submitted < window); submitted++) {
+				pending.add(executor.submit(iteration));
+			};
+			//sliding window: every iteration written makes room for the next one
+			while (! pending.isEmpty()) {
+				out.print(pending.poll().get());
+				if (submitted < nrOfIters) {
+					pending.add(executor.submit(iteration));
+					submitted++;
+				};
+			};
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException exc) {
+			throw new RuntimeException(exc.getCause());
+		} finally {
+			executor.shutdownNow();
+		};
+		return true;
+	}
+
+	/**
+	 * Genera un token ring grande y lo somete a una carga de peticiones, escribiendo las medidas en la salida estándar
+	 * @param workstations número de workstations
+	 * @param printers número de impresoras
+	 * @param nodes número de nodos simples
+	 * @param rate peticiones por segundo, 0 para tantas como sea posible
+	 * @param seconds duración de la carga
+	 * @param mix pesos de impresión, destino desconocido, destino que no es impresora y broadcast, separados por comas
+	 * @param seed semilla de la generación del token ring y de las peticiones
+	 * @param nrOfThreads número de hilos que hacen peticiones
+	 */
+	public static void load (int workstations, int printers, int nodes, double rate, double seconds,
+			String mix, long seed, int nrOfThreads) throws InterruptedException {
+		long start = System.nanoTime();
+		Network network = TopologyGenerator.generate(seed, workstations, printers, nodes);
+		System.out.print("Generated " + workstations + " workstations, " + printers + " printers and " + nodes);
+		System.out.println(" nodes (seed " + seed + ") in " + (System.nanoTime() - start) / 1000000 + " ms");
 
-		System.out.println(); System.out.println(); System.out.println();
-		System.out.println("---------------------------------REPORT------------------------------------------");
-		System.out.println(report.toString());
+		LoadDriver driver = new LoadDriver(network, seed);
+		String[] weights = mix.split(",");
+		driver.setMix(Integer.parseInt(weights[0].trim()), Integer.parseInt(weights[1].trim()),
+				Integer.parseInt(weights[2].trim()), Integer.parseInt(weights[3].trim()));
+		driver.run(rate, (long) (seconds * 1000), nrOfThreads).printOn(System.out);
+	}
+
+	private static void printUsage () {
+		System.out.println("Usage: t(est) | s(imulate) nrOfIterations | p(arallel simulate) nrOfIterations [nrOfThreads]"
+				+ " | l(oad) nrOfWorkstations nrOfPrinters nrOfNodes [requestsPerSecond [seconds [print,unknown,notAPrinter,broadcast [seed [nrOfThreads]]]]] '");
+	}
+
+	/**
+	 * Comprueba los argumentos del comando load
+	 * @param mix pesos separados por comas
+	 * @return true si hay al menos una workstation y una impresora, y cuatro pesos no negativos que no suman 0
+	 */
+	private static boolean validLoad (int workstations, int printers, int nodes, String mix) {
+		if ((workstations <= 0) || (printers <= 0) || (nodes < 0)) {return false;};
+		String[] weights = mix.split(",");
+		if (weights.length != 4) {return false;};
+		int total = 0;
+		for (String weight : weights) {
+			int w = Integer.parseInt(weight.trim());
+			if (w < 0) {return false;};
+			total += w;
+		}
+		return total > 0;
 	}
 
 	public static void main (String args[]) {
 
 		if (args.length <= 0) {
-			System.out.println("Usage: t(est) | s(imulate) nrOfIterations '");	    
+			printUsage();
 		} else if (args[0].equals("t")) {//'test' command
 			doRegressionTests();
 		} else if (args[0].equals("s")) {//'simulate' command
@@ -129,6 +252,54 @@ public class LANSimulation {
 			for (int i = 0; i < nrOfIters.intValue(); i++) {
 				simulate();
 			}
+		} else if (args[0].equals("p")) {//'parallel simulate' command
+			int nrOfIters = 1, nrOfThreads = Runtime.getRuntime().availableProcessors();
+			try {
+				if (args.length > 1) {
+					nrOfIters = Integer.parseInt(args[1]);
+				};
+				if (args.length > 2) {
+					nrOfThreads = Integer.parseInt(args[2]);
+				};
+			} catch (NumberFormatException exc) {
+				printUsage();
+				return;
+			};
+			if ((nrOfIters < 0) || (nrOfThreads <= 0)) {
+				printUsage();
+				return;
+			};
+			simulateInParallel(nrOfIters, nrOfThreads);
+		} else if (args[0].equals("l") && (args.length > 3)) {//'load' command
+			double rate = 0, seconds = 10;
+			String mix = "70,10,10,10";
+			long seed = 1;
+			int nrOfThreads = Runtime.getRuntime().availableProcessors();
+			if (args.length > 4) {
+				rate = Double.parseDouble(args[4]);
+			};
+			if (args.length > 5) {
+				seconds = Double.parseDouble(args[5]);
+			};
+			if (args.length > 6) {
+				mix = args[6];
+			};
+			if (args.length > 7) {
+				seed = Long.parseLong(args[7]);
+			};
+			if (args.length > 8) {
+				nrOfThreads = Integer.parseInt(args[8]);
+			};
+			int workstations = Integer.parseInt(args[1]), printers = Integer.parseInt(args[2]), nodes = Integer.parseInt(args[3]);
+			if (! validLoad(workstations, printers, nodes, mix)) {
+				printUsage();
+				return;
+			};
+			try {
+				load(workstations, printers, nodes, rate, seconds, mix, seed, nrOfThreads);
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
 		} else {//unknown commaND
 			System.out.print("Unknown command to LANSimulation: '");
 			System.out.print(args[0]);
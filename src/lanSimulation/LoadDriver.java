@@ -0,0 +1,289 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+A <em>LoadDriver</em> issues a mix of requests on a <em>Network</em> at a target rate for a given
+time, and measures throughput, latencies and the memory allocated while doing so.
+<p>The mix weighs four kinds of requests: a print on a printer, a print on a destination that is
+not on the token ring, a print on a node that is not a printer, and a broadcast. Workstations,
+destinations and kinds are drawn with random generators seeded from the seed of the driver.
+Requests are reported to a CountingReportSink per thread, so no report text is produced.</p>
+<p>With a target rate, every thread issues its requests on a fixed schedule and latencies are
+measured from the time a request was due, so a stalled request also counts for the requests
+that had to wait for it.</p>
+ */
+public class LoadDriver {
+	/**
+	 * Tipos de petición
+	 */
+	public static final int PRINT = 0, UNKNOWN_DESTINATION = 1, NOT_A_PRINTER = 2, BROADCAST = 3;
+
+	private static final String[] KIND_NAMES = {"print", "unknown destination", "not a printer", "broadcast"};
+	private static final String[] DOCUMENTS = {"!PS Load test.author:Load.title:Test.", "author: LOADTEST Hello World"};
+
+	private final Network network_;
+	private final long seed_;
+	private final String[] workstations_, printers_, others_;
+	private final int[] mix_;
+
+	/**
+Construct a <em>LoadDriver</em> for #network, with the random choices seeded by #seed and a mix
+of 70% prints, 10% unknown destinations, 10% non printer destinations and 10% broadcasts.
+<p><strong>Precondition:</strong> network.isConsistent();</p>
+	 */
+	public LoadDriver(Network network, long seed) {
+		assert network.isConsistent();
+		network_ = network;
+		seed_ = seed;
+		NodeIndex ring = network.index();
+		List<String> workstations = new ArrayList<String>(), printers = new ArrayList<String>(), others = new ArrayList<String>();
+		for (int i = 0; i < ring.size(); i++) {
+			Node n = ring.nodeAt(i);
+			switch (NodeIndex.typeOf(n)) {
+			case NodeIndex.PRINTER:
+				printers.add(n.name_);
+				break;
+			case NodeIndex.WORKSTATION:
+				workstations.add(n.name_);
+				others.add(n.name_);
+				break;
+			default:
+				others.add(n.name_);
+			};
+		}
+		workstations_ = workstations.toArray(new String[workstations.size()]);
+		printers_ = printers.toArray(new String[printers.size()]);
+		others_ = others.toArray(new String[others.size()]);
+		mix_ = new int[] {70, 10, 10, 10};
+	}
+
+	/**
+	 * Fija el peso de cada tipo de petición en la mezcla
+	 * <p><strong>Precondition:</strong> todos los pesos >= 0 y alguno > 0; sin impresoras el peso de PRINT es 0;</p>
+	 */
+	public void setMix(int print, int unknownDestination, int notAPrinter, int broadcast) {
+		assert (print >= 0) & (unknownDestination >= 0) & (notAPrinter >= 0) & (broadcast >= 0);
+		assert print + unknownDestination + notAPrinter + broadcast > 0;
+		assert (print == 0) | (printers_.length > 0);
+		mix_[PRINT] = print;
+		mix_[UNKNOWN_DESTINATION] = unknownDestination;
+		mix_[NOT_A_PRINTER] = notAPrinter;
+		mix_[BROADCAST] = broadcast;
+	}
+
+	/**
+Issue requests from #threads threads during #durationMillis, at #rate requests per second in total,
+or as fast as possible when #rate is 0.
+<p><strong>Precondition:</strong> rate >= 0 & durationMillis > 0 & threads > 0;</p>
+@return the measurements of the run
+	 */
+	public Result run(double rate, long durationMillis, int threads) throws InterruptedException {
+		assert (rate >= 0) & (durationMillis > 0) & (threads > 0);
+		final Result result = new Result(rate, threads);
+		final long interval = (rate > 0) ? (long) (threads * 1e9 / rate) : 0;
+		final long start = System.nanoTime(), end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final long seed = seed_ + t;
+			final long first = start + t * interval / threads;
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					drive(new Random(seed), first, interval, end, result);
+				}
+			}, "LoadDriver-" + t);
+			workers[t].start();
+		}
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+		}
+		result.elapsedNanos_ = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Bucle de un hilo: elige y atiende peticiones hasta el final de la prueba
+	 * @param random generador de este hilo
+	 * @param due instante en que toca la primera petición
+	 * @param interval nanosegundos entre dos peticiones de este hilo, 0 para no esperar
+	 * @param end instante en que termina la prueba
+	 */
+	private void drive(Random random, long due, long interval, long end, Result result) {
+		long allocatedBefore = allocatedBytes();
+		CountingReportSink sink = new CountingReportSink();
+		int totalWeight = mix_[0] + mix_[1] + mix_[2] + mix_[3];
+		while (true) {
+			long now = System.nanoTime();
+			if (interval == 0) {due = now;};
+			if (due >= end) {break;};
+			if (now < due) {
+				LockSupport.parkNanos(due - now);
+				continue;
+			};
+			int kind = pick(random.nextInt(totalWeight));
+			boolean ok;
+			if (kind == BROADCAST) {
+				ok = network_.requestBroadcast(sink);
+			} else {
+				String workstation = workstations_[random.nextInt(workstations_.length)];
+				String destination = (kind == PRINT) ? printers_[random.nextInt(printers_.length)]
+						: (kind == NOT_A_PRINTER) ? others_[random.nextInt(others_.length)]
+						: "unknown";
+				ok = network_.requestWorkstationPrintsDocument(workstation,
+						DOCUMENTS[random.nextInt(DOCUMENTS.length)], destination, sink);
+			};
+			result.record(kind, ok, System.nanoTime() - due);
+			due += interval;
+		}
+		long allocated = allocatedBytes();
+		if ((allocatedBefore >= 0) && (allocated >= 0)) {result.allocatedBytes_.add(allocated - allocatedBefore);};
+	}
+
+	private int pick(int draw) {
+		int kind = 0;
+		while (draw >= mix_[kind]) {
+			draw -= mix_[kind++];
+		}
+		return kind;
+	}
+
+	/**
+	 * @return bytes reservados hasta ahora por el hilo actual, -1 si la máquina virtual no lo mide
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		};
+		return -1;
+	}
+
+	/**
+	 * Medidas de una prueba de carga
+	 */
+	public static class Result {
+		private final double rate_;
+		private final int threads_;
+		private final LongAdder[] succeeded_, failed_;
+		private final Histogram[] latencies_;
+		private final LongAdder allocatedBytes_;
+		private long elapsedNanos_;
+
+		Result(double rate, int threads) {
+			rate_ = rate;
+			threads_ = threads;
+			succeeded_ = new LongAdder[KIND_NAMES.length];
+			failed_ = new LongAdder[KIND_NAMES.length];
+			latencies_ = new Histogram[KIND_NAMES.length];
+			for (int k = 0; k < KIND_NAMES.length; k++) {
+				succeeded_[k] = new LongAdder();
+				failed_[k] = new LongAdder();
+				latencies_[k] = new Histogram();
+			}
+			allocatedBytes_ = new LongAdder();
+		}
+
+		void record(int kind, boolean ok, long latency) {
+			(ok ? succeeded_[kind] : failed_[kind]).increment();
+			latencies_[kind].record(latency);
+		}
+
+		/**
+		 * @param kind tipo de petición
+		 * @return número de peticiones de ese tipo que tuvieron éxito
+		 */
+		public long succeeded(int kind) {
+			return succeeded_[kind].sum();
+		}
+
+		/**
+		 * @param kind tipo de petición
+		 * @return número de peticiones de ese tipo que fallaron
+		 */
+		public long failed(int kind) {
+			return failed_[kind].sum();
+		}
+
+		/**
+		 * @param kind tipo de petición
+		 * @return histograma de latencias de ese tipo, en nanosegundos
+		 */
+		public Histogram latencies(int kind) {
+			return latencies_[kind];
+		}
+
+		/**
+		 * @return número total de peticiones atendidas
+		 */
+		public long requests() {
+			long requests = 0;
+			for (int k = 0; k < KIND_NAMES.length; k++) {
+				requests += latencies_[k].count();
+			}
+			return requests;
+		}
+
+		/**
+		 * @return peticiones atendidas por segundo
+		 */
+		public double throughput() {
+			return (elapsedNanos_ == 0) ? 0 : requests() / (elapsedNanos_ / 1e9);
+		}
+
+		/**
+		 * @return bytes reservados por los hilos de la prueba, 0 si la máquina virtual no lo mide
+		 */
+		public long allocatedBytes() {
+			return allocatedBytes_.sum();
+		}
+
+		/**
+		 * Escribe un resumen de la prueba
+		 * @param out donde se escribe
+		 */
+		public void printOn(PrintStream out) {
+			long requests = requests();
+			out.print("Load of " + ((rate_ > 0) ? (long) rate_ + " requests/s" : "as many requests as possible"));
+			out.println(" on " + threads_ + " threads during " + elapsedNanos_ / 1000000 + " ms");
+			out.println("requests: " + requests + " (" + (long) throughput() + " requests/s)");
+			for (int k = 0; k < KIND_NAMES.length; k++) {
+				Histogram h = latencies_[k];
+				if (h.count() == 0) {continue;};
+				out.print("  " + KIND_NAMES[k] + ": " + succeeded(k) + " succeeded, " + failed(k) + " failed;");
+				out.print(" latency (us) p50 " + h.percentile(0.5) / 1000 + " p90 " + h.percentile(0.9) / 1000);
+				out.println(" p99 " + h.percentile(0.99) / 1000 + " max " + h.max() / 1000);
+			}
+			out.print("allocated: " + allocatedBytes() + " bytes");
+			out.println((requests == 0) ? "" : " (" + allocatedBytes() / requests + " bytes/request)");
+		}
+	}
+}
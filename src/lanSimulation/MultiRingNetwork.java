@@ -0,0 +1,533 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+import lanSimulation.internals.Node.Bridge;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Future;
+
+/**
+A <em>MultiRingNetwork</em> joins several token ring <em>Network</em>s through pairs of linked
+<em>Bridge</em> nodes, one of each pair on either token ring.
+A print request travels its own token ring up to the bridge that leads towards the token ring of the
+printer, crosses to the peer bridge and continues there, until it reaches the printer. Which bridge
+leads where is kept in the routing tables of the bridges, computed on every link as the shortest
+path in number of token rings, so packets never flood the other token rings.
+<p>Every token ring has an executor of its own, which runs its tasks one at a time on a pool of daemon
+threads shared by all token rings and sized to the cores: requests submitted with
+{@link #submitPrint(String, String, String, ReportSink)} run on the executor of the token ring they are
+on and are handed over to the executor of the next token ring at a bridge, so the traffic of different
+token rings runs in parallel. The synchronous requests run on the calling thread.</p>
+<p>Node names are unique over all token rings; every token ring must be a consistent network on its own.</p>
+ */
+public class MultiRingNetwork {
+	/**
+    Holds the token rings, indexed by their number.
+	 */
+	private final List<Network> rings_;
+	/**
+    Holds the bridges on every token ring, indexed by the number of the token ring.
+	 */
+	private final List<List<Bridge>> bridges_;
+	/**
+    Maps the name of every node on the number of the token ring it is on.
+	 */
+	private final ConcurrentHashMap<String, Integer> ringOf_;
+	/**
+    Holds, per token ring and per destination token ring, the bridge through which packets leave; null when unreachable.
+	 */
+	private volatile Bridge[][] exits_;
+	/**
+    Holds the threads shared by the executors of the token rings.
+	 */
+	private final ExecutorService pool_;
+	/**
+    Holds one executor per token ring; created when first needed.
+	 */
+	private volatile RingExecutor[] executors_;
+	/**
+    Counts the tasks queued on the executors and not yet run, to stop the pool once they are done.
+    Guarded by #lifecycleLock_, together with #shutdown_.
+	 */
+	private int queued_;
+	private volatile boolean shutdown_;
+	private final Object lifecycleLock_ = new Object();
+
+	public MultiRingNetwork() {
+		rings_ = new ArrayList<Network>();
+		bridges_ = new ArrayList<List<Bridge>>();
+		ringOf_ = new ConcurrentHashMap<String, Integer>();
+		exits_ = new Bridge[0][];
+		queued_ = 0;
+		shutdown_ = false;
+		pool_ = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "MultiRingNetwork");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+Add the token ring #ring to #receiver; its bridges are not linked yet.
+<p><strong>Precondition:</strong> ring.isConsistent() & no requests were handled yet;</p>
+@return the number of the token ring
+@throws IllegalArgumentException when a name on #ring is already used on another token ring
+	 */
+	public synchronized int addRing(Network ring) {
+		assert ring.isConsistent() & (executors_ == null);
+		int number = rings_.size();
+		NodeIndex index = ring.index();
+		for (int i = 0; i < index.size(); i++) {
+			if (ringOf_.containsKey(index.nodeAt(i).name_)) {
+				throw new IllegalArgumentException("Node name already used on another token ring: " + index.nodeAt(i).name_);
+			};
+		}
+		List<Bridge> bridges = new ArrayList<Bridge>();
+		for (int i = 0; i < index.size(); i++) {
+			Node n = index.nodeAt(i);
+			ringOf_.put(n.name_, Integer.valueOf(number));
+			if (n instanceof Bridge) {bridges.add((Bridge) n);};
+		}
+		rings_.add(ring);
+		bridges_.add(bridges);
+		computeRoutes();
+		return number;
+	}
+
+	/**
+Link the bridge #bridge with the bridge #peer on another token ring and recompute the routing tables.
+<p><strong>Precondition:</strong> #bridge and #peer are bridges on different token rings of #receiver;</p>
+	 */
+	public synchronized void link(String bridge, String peer) {
+		Bridge b = bridge(bridge), p = bridge(peer);
+		assert (b != null) & (p != null) & (ringOf(bridge) != ringOf(peer));
+		b.link(p);
+		computeRoutes();
+	}
+
+	private Bridge bridge(String name) {
+		int ring = ringOf(name);
+		if (ring < 0) {return null;};
+		Node n = rings_.get(ring).index().lookup(name);
+		return (n instanceof Bridge) ? (Bridge) n : null;
+	}
+
+	/**
+	 * Calcula las tablas de rutas de todos los bridges: para cada token ring, un recorrido en anchura
+	 * sobre los enlaces da, para cada token ring destino, el bridge por el que sale el camino más corto
+	 */
+	private void computeRoutes() {
+		int rings = rings_.size();
+		Bridge[][] exits = new Bridge[rings][];
+		for (int from = 0; from < rings; from++) {
+			Bridge[] exit = new Bridge[rings];
+			boolean[] reached = new boolean[rings];
+			ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+			reached[from] = true;
+			pending.add(Integer.valueOf(from));
+			while (! pending.isEmpty()) {
+				int ring = pending.poll().intValue();
+				for (Bridge b : bridges_.get(ring)) {
+					if (b.peer() == null) {continue;};
+					int next = ringOf(b.peer().name_);
+					if (reached[next]) {continue;};
+					reached[next] = true;
+					//the first bridge on the path is the exit of every ring reached through it
+					exit[next] = (ring == from) ? b : exit[ring];
+					pending.add(Integer.valueOf(next));
+				}
+			}
+			exits[from] = exit;
+			for (Bridge b : bridges_.get(from)) {
+				boolean[] routes = new boolean[rings];
+				for (int to = 0; to < rings; to++) {
+					routes[to] = exit[to] == b;
+				}
+				b.setRoutes(routes);
+			}
+		}
+		exits_ = exits;
+	}
+
+	/**
+	 * @param name nombre de un nodo
+	 * @return número del token ring en que está el nodo, -1 si no está en ninguno
+	 */
+	public int ringOf(String name) {
+		Integer ring = ringOf_.get(name);
+		return (ring == null) ? -1 : ring.intValue();
+	}
+
+	/**
+	 * @param number número del token ring
+	 * @return el token ring
+	 */
+	public Network ring(int number) {
+		return rings_.get(number);
+	}
+
+	/**
+	 * @return número de token rings
+	 */
+	public int ringCount() {
+		return rings_.size();
+	}
+
+	/**
+	 * @param ring número del token ring en que está el paquete
+	 * @param destination número del token ring destino
+	 * @return bridge del token ring por el que sale el paquete, null si el destino no es alcanzable
+	 */
+	private Bridge exitTowards(int ring, int destination) {
+		Bridge[][] exits = exits_;
+		return (ring < exits.length) ? exits[ring][destination] : null;
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer, which may be on another
+token ring, see {@link Network#requestWorkstationPrintsDocument(String, String, String, Writer)}.
+<p><strong>Precondition:</strong> #workstation is a workstation on one of the token rings;</p>
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, Writer report) {
+		return requestWorkstationPrintsDocument(workstation, document, printer, new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer on the calling thread,
+see {@link #requestWorkstationPrintsDocument(String, String, String, Writer)}.
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, ReportSink report) {
+		PrintRequest request = start(workstation, document, printer, report);
+		while (! request.done_) {
+			request.step();
+		}
+		return request.result_;
+	}
+
+	/**
+Submit a request of #workstation to print #document on #printer, handled on the executors of the
+token rings the packet travels. #report receives the events of the request in order, but from the
+threads of those executors.
+@return the result of the request, once it has been handled
+@throws RejectedExecutionException when the #receiver has been shut down
+	 */
+	public Future<Boolean> submitPrint(String workstation, String document, String printer, ReportSink report) {
+		if (shutdown_) {throw new RejectedExecutionException("MultiRingNetwork is shut down");};
+		PrintRequest request = start(workstation, document, printer, report);
+		if (request.done_) {
+			request.future_.complete(Boolean.valueOf(request.result_));
+		} else {
+			schedule(request, false);
+		};
+		return request.future_;
+	}
+
+	/**
+	 * Encola el siguiente tramo de la petición en el executor de su token ring
+	 * @param inFlight true si la petición ya está en curso, y se acepta aunque se haya parado la red
+	 */
+	private void schedule(final PrintRequest request, boolean inFlight) {
+		executors()[request.ring_].execute(new Runnable() {
+			public void run() {
+				try {
+					request.step();
+				} catch (RuntimeException exc) {
+					request.future_.completeExceptionally(exc);
+					return;
+				}
+				if (request.done_) {
+					request.future_.complete(Boolean.valueOf(request.result_));
+				} else {
+					schedule(request, true);
+				};
+			}
+		}, inFlight);
+	}
+
+	/**
+	 * Empieza una petición de impresión: la informa y rechaza en el acto los destinos que no son impresoras
+	 */
+	private PrintRequest start(String workstation, String document, String printer, ReportSink report) {
+		int origin = ringOf(workstation);
+		assert (origin >= 0) && rings_.get(origin).hasWorkstation(workstation);
+		report.printRequested(workstation, document, printer);
+		PrintRequest request = new PrintRequest(workstation, document, printer, report, origin);
+		int destination = ringOf(printer);
+		if (destination < 0) {
+			request.fail(ReportSink.DESTINATION_NOT_FOUND);
+		} else if (rings_.get(destination).index().typeOf(printer) != NodeIndex.PRINTER) {
+			request.fail(ReportSink.DESTINATION_NOT_A_PRINTER);
+		} else {
+			request.destination_ = destination;
+		};
+		return request;
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes of all token rings. Every token ring
+is handled on its own executor, and the reports of the token rings are written on #report in the
+order of the token rings.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public boolean requestBroadcast(Writer report) throws InterruptedException {
+		int rings = rings_.size();
+		StringWriter[] texts = new StringWriter[rings];
+		ReportSink[] fragments = new ReportSink[rings];
+		for (int r = 0; r < rings; r++) {
+			texts[r] = new StringWriter(Network.reportCapacity(rings_.get(r).index().size()));
+			fragments[r] = new WriterReportSink(texts[r]);
+		}
+		ReportSink sink = new WriterReportSink(report);
+		sink.broadcastRequested();
+		broadcast(fragments);
+		try {
+			for (int r = 0; r < rings; r++) {
+				report.append(texts[r].getBuffer());
+			}
+		} catch (IOException exc) {
+			// just ignore
+		};
+		sink.broadcastCompleted();
+		return true;
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes of all token rings,
+see {@link #requestBroadcast(Writer)}; the events of every token ring are replayed on #report in order.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public boolean requestBroadcast(ReportSink report) throws InterruptedException {
+		int rings = rings_.size();
+		RecordingReportSink[] fragments = new RecordingReportSink[rings];
+		for (int r = 0; r < rings; r++) {
+			fragments[r] = new RecordingReportSink();
+		}
+		report.broadcastRequested();
+		broadcast(fragments);
+		for (int r = 0; r < rings; r++) {
+			fragments[r].replay(report);
+		}
+		report.broadcastCompleted();
+		return true;
+	}
+
+	/**
+	 * Envía el paquete broadcast por cada token ring en su propio executor y espera a que terminen todos
+	 * @param fragments donde informa cada token ring
+	 */
+	private void broadcast(final ReportSink[] fragments) throws InterruptedException {
+		List<Future<?>> pending = new ArrayList<Future<?>>(fragments.length);
+		for (int r = 0; r < fragments.length; r++) {
+			final Network ring = rings_.get(r);
+			final ReportSink fragment = fragments[r];
+			FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+				public void run() {
+					ring.relayBroadcast(fragment);
+				}
+			}, null);
+			executors()[r].execute(task);
+			pending.add(task);
+		}
+		try {
+			for (Future<?> f : pending) {
+				f.get();
+			}
+		} catch (ExecutionException exc) {
+			throw new RuntimeException(exc.getCause());
+		}
+	}
+
+	private RingExecutor[] executors() {
+		RingExecutor[] executors = executors_;
+		if (executors == null) {
+			synchronized (this) {
+				if (executors_ == null) {
+					executors = new RingExecutor[rings_.size()];
+					for (int r = 0; r < executors.length; r++) {
+						executors[r] = new RingExecutor();
+					}
+					executors_ = executors;
+				};
+				executors = executors_;
+			}
+		};
+		return executors;
+	}
+
+	/**
+Stop the threads of the executors once the submitted requests have been handled; requests submitted
+after that are rejected, while print requests already on their way still cross the bridges to their
+printer.
+The threads are daemon threads, so they never keep the JVM alive.
+	 */
+	public void shutdown() {
+		synchronized (lifecycleLock_) {
+			shutdown_ = true;
+			if (queued_ == 0) {pool_.shutdown();};
+		}
+	}
+
+	/**
+	 * Cuenta una tarea encolada, o la rechaza si la red está parada y la tarea no es de una petición en curso;
+	 * mientras queden tareas contadas el pool no se para, así que la tarea siempre se puede ejecutar
+	 * @param inFlight true si la tarea sigue una petición ya aceptada
+	 */
+	private void admit(boolean inFlight) {
+		synchronized (lifecycleLock_) {
+			if (shutdown_ && ! inFlight) {throw new RejectedExecutionException("MultiRingNetwork is shut down");};
+			queued_++;
+		}
+	}
+
+	/**
+	 * Descuenta una tarea terminada y para el pool si era la última después de shutdown()
+	 */
+	private void finished() {
+		synchronized (lifecycleLock_) {
+			queued_--;
+			if ((queued_ == 0) && shutdown_) {pool_.shutdown();};
+		}
+	}
+
+	/**
+	 * Executor de un token ring: ejecuta sus tareas de una en una, en orden, sobre los hilos compartidos
+	 */
+	private class RingExecutor implements Executor, Runnable {
+		private final ArrayDeque<Runnable> tasks_ = new ArrayDeque<Runnable>();
+		private boolean active_ = false;
+
+		public void execute(Runnable task) {
+			execute(task, false);
+		}
+
+		/**
+		 * @param inFlight true si la tarea sigue una petición ya aceptada, ver admit(boolean)
+		 */
+		void execute(Runnable task, boolean inFlight) {
+			admit(inFlight);
+			synchronized (this) {
+				tasks_.add(task);
+				if (active_) {return;};
+				active_ = true;
+			}
+			pool_.execute(this);
+		}
+
+		/**
+		 * Ejecuta las tareas pendientes del token ring hasta vaciar la cola
+		 */
+		public void run() {
+			while (true) {
+				Runnable task;
+				synchronized (this) {
+					task = tasks_.poll();
+					if (task == null) {
+						active_ = false;
+						return;
+					};
+				}
+				try {
+					task.run();
+				} finally {
+					finished();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Petición de impresión en curso: en qué token ring está el paquete y desde qué nodo sigue
+	 */
+	private class PrintRequest {
+		final String workstation_, document_, printer_;
+		final ReportSink report_;
+		final CompletableFuture<Boolean> future_ = new CompletableFuture<Boolean>();
+		int ring_, destination_;
+		String from_;
+		boolean done_, result_;
+
+		PrintRequest(String workstation, String document, String printer, ReportSink report, int ring) {
+			workstation_ = workstation;
+			document_ = document;
+			printer_ = printer;
+			report_ = report;
+			ring_ = ring;
+			from_ = workstation;
+		}
+
+		void fail(byte reason) {
+			report_.deliveryFailed(reason);
+			done_ = true;
+			result_ = false;
+		}
+
+		/**
+		 * Lleva el paquete por el token ring actual: hasta la impresora si está en él, o hasta el
+		 * bridge que lleva hacia ella, desde el que pasa al token ring siguiente
+		 */
+		void step() {
+			Network ring = rings_.get(ring_);
+			if (ring_ == destination_) {
+				Node reached = ring.relay(from_, printer_, report_);
+				if (reached == null) {
+					fail(ReportSink.DESTINATION_NOT_FOUND);
+				} else {
+					result_ = ring.deliver(reached, workstation_, document_, report_);
+					done_ = true;
+				};
+				return;
+			};
+			Bridge exit = exitTowards(ring_, destination_);
+			if (exit == null) {
+				fail(ReportSink.DESTINATION_NOT_FOUND);
+				return;
+			};
+			if (! exit.name_.equals(from_) && (ring.relay(from_, exit.name_, report_) == null)) {
+				fail(ReportSink.DESTINATION_NOT_FOUND);
+				return;
+			};
+			exit.logging(report_);
+			from_ = exit.peer().name_;
+			ring_ = ringOf(from_);
+		}
+	}
+}
@@ -22,16 +22,34 @@ package lanSimulation;
 import lanSimulation.internals.*;
 import lanSimulation.internals.Node.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.Enumeration;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
 A <em>Network</em> represents the basic data stucture for simulating a Local Area Network (LAN).
 The LAN network architecture is a token ring, implying that packahes will be passed from one node to another, until they reached their destination, or until they travelled the whole token ring.
+<p>Requests may be issued concurrently, as long as each request reports on its own Writer or ReportSink
+(see {@link RequestProcessor}); they travel an immutable snapshot of the token ring and never lock.</p>
  */
 public class Network {
 	/**
+    Upper bound for the initial capacity of the text of a broadcast report; the text still grows past it.
+	 */
+	static final int MAX_REPORT_CAPACITY = 1 << 20;
+	/**
     Holds a pointer to myself.
     Used to verify whether I am properly initialized.
 	 */
@@ -40,12 +58,39 @@ public class Network {
     Holds a pointer to some "first" node in the token ring.
     Used to ensure that various printing operations return expected behaviour.
 	 */
-	public Node firstNode_;
+	public volatile Node firstNode_;
 	/**
     Maps the names of workstations on the actual workstations.
-    Used to initiate the requests for the network.
+    Used to initiate the requests for the network; lookups do not lock, so concurrent requests do not contend.
 	 */
-	private Hashtable workstations_;
+	private ConcurrentHashMap<String, Workstation> workstations_;
+	/**
+    Indexes all nodes on the token ring by name; an immutable snapshot of the token ring.
+    Used to reject requests for unknown destinations without travelling the token ring.
+	 */
+	private volatile NodeIndex index_;
+	/**
+    Gives every node name that was ever on the token ring a dense integer id.
+    Used to compare nodes by id while packets travel the token ring.
+	 */
+	private final SymbolTable symbols_ = new SymbolTable();
+	/**
+    Caches the outcome of the consistency verification, encoded as (version * 2 + 1) when
+    the topology version was consistent and (version * 2) when it was not; -1 if never verified.
+	 */
+	private volatile long verdict_;
+	/**
+    Serializes the changes to the topology; requests never take this lock.
+	 */
+	private final Object topologyLock_ = new Object();
+	/**
+    Counts the jobs and bytes printed per author, printer and workstation.
+	 */
+	private final AccountingLedger ledger_ = new AccountingLedger();
+	/**
+    Measures the requests handled by #receiver.
+	 */
+	private final NetworkMetrics metrics_ = new NetworkMetrics(symbols_);
 
 	/**
 Construct a <em>Network</em> suitable for holding #size Workstations.
@@ -55,7 +100,8 @@ Construct a <em>Network</em> suitable for holding #size Workstations.
 		assert size > 0;
 		initPtr_ = this;
 		firstNode_ = null;
-		workstations_ = new Hashtable(size, 1.0f);
+		workstations_ = new ConcurrentHashMap<String, Workstation>(size, 1.0f);
+		verdict_ = -1;
 		assert isInitialized();
 		assert ! consistentNetwork();
 	}
@@ -81,8 +127,8 @@ Currently, the network looks as follows.
 		wsHans.nextNode_ = prAndy;
 		prAndy.nextNode_ = wsFilip;
 
-		network.workstations_.put(wsFilip.name_, wsFilip);
-		network.workstations_.put(wsHans.name_, wsHans);
+		network.register(wsFilip);
+		network.register(wsHans);
 		network.firstNode_ = (Node) wsFilip;
 
 		assert network.isInitialized();
@@ -90,6 +136,29 @@ Currently, the network looks as follows.
 		return network;
 	}
 
+	/**
+Return a <em>Network</em> whose token ring holds #nodes, in the given order.
+The nodes are linked into a ring and all workstations among them are registered.
+<p><strong>Precondition:</strong> the names of #nodes are distinct;</p>
+<p><strong>Postcondition:</strong>result.isInitialized();</p>
+	 */
+	public static Network fromNodes (List<Node> nodes) {
+		Network network = new Network (Math.max(nodes.size() / 2, 1));
+		Node previous = null;
+		for (Node node : nodes) {
+			if (previous != null) {previous.nextNode_ = node;};
+			if (node instanceof Workstation) {network.register((Workstation) node);};
+			previous = node;
+		}
+		if (previous != null) {
+			previous.nextNode_ = nodes.get(0);
+			network.firstNode_ = nodes.get(0);
+		};
+
+		assert network.isInitialized();
+		return network;
+	}
+
 	/**
 Answer whether #receiver is properly initialized.
 	 */
@@ -105,7 +174,7 @@ Answer whether #receiver contains a workstation with the given name.
 		Node n;
 
 		assert isInitialized();
-		n = (Node) workstations_.get(ws);
+		n = workstations_.get(ws);
 		if (n == null) {
 			return false;
 		} else {
@@ -113,8 +182,243 @@ Answer whether #receiver contains a workstation with the given name.
 		}
 	};
 
+	/**
+	 * Registra una workstation para que pueda iniciar peticiones
+	 * @param ws workstation a registrar
+	 */
+	
+	private void register(Workstation ws) {
+		workstations_.put(ws.name_, ws);
+	}
+
+	/**
+Answer the index of all nodes on the token ring of #receiver.
+The index is a snapshot of the token ring; it is rebuilt when #firstNode_ changed since it was built.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+	 */
+	public NodeIndex index () {
+		assert isInitialized();
+		NodeIndex index = index_;
+		if ((index == null) || (index.first() != firstNode_)) {
+			synchronized (topologyLock_) {
+				index = index_;
+				if ((index == null) || (index.first() != firstNode_)) {
+					index = identify(new NodeIndex(firstNode_, (index == null) ? 0 : index.version() + 1));
+					index_ = index;
+				};
+			}
+		};
+		return index;
+	}
+
+	/**
+Rebuild the index of #receiver.
+Must be called after the token ring was rewired by hand.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+	 */
+	public void reindex () {
+		assert isInitialized();
+		synchronized (topologyLock_) {
+			NodeIndex index = index_;
+			index_ = identify(new NodeIndex(firstNode_, (index == null) ? 0 : index.version() + 1));
+		}
+	}
+
+	/**
+	 * Registra en la tabla de símbolos los nombres de todos los nodos de una versión del token ring
+	 * @param index versión del token ring
+	 * @return la misma versión, con el id de todos sus nodos asignado
+	 */
+	
+	private NodeIndex identify(NodeIndex index) {
+		for (int i = 0; i < index.size(); i++) {
+			index.nodeAt(i).id_ = symbols_.register(index.nodeAt(i).name_);
+		}
+		metrics_.reserve(symbols_.size());
+		return index;
+	}
+
+	/**
+Answer the table that gives the names of the nodes of #receiver their integer id.
+	 */
+	public SymbolTable symbols () {
+		return symbols_;
+	}
+
+	/**
+Answer the version of the topology of #receiver; it changes whenever the token ring changes.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+	 */
+	public long topologyVersion () {
+		return index().version();
+	}
+
+	/**
+Insert #node in the token ring right after the node named #name.
+When #receiver has no nodes yet, #name is ignored and #node becomes the first node.
+Packets already travelling the token ring keep seeing the previous topology.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+@return Answer #true when #node was inserted and #false when #name is unknown or #node's name is taken
+	 */
+	public boolean insertAfter (String name, Node node) {
+		assert isInitialized();
+		synchronized (topologyLock_) {
+			NodeIndex index = index();
+			if (index.lookup(node.name_) != null) {return false;};
+			if (index.size() == 0) {
+				node.nextNode_ = node;
+				node.id_ = symbols_.register(node.name_);
+				metrics_.reserve(symbols_.size());
+				index_ = index.withInsertedAfter(-1, node);
+				firstNode_ = node;
+			} else {
+				int pos = index.positionOf(name);
+				if (pos < 0) {return false;};
+				Node previous = index.nodeAt(pos);
+				node.nextNode_ = index.nodeAt(index.nextPosition(pos));
+				node.id_ = symbols_.register(node.name_);
+				metrics_.reserve(symbols_.size());
+				index_ = index.withInsertedAfter(pos, node);
+				previous.nextNode_ = node;
+			};
+			if (node instanceof Workstation) {register((Workstation) node);};
+			return true;
+		}
+	}
+
+	/**
+Remove the node named #name from the token ring.
+The removed node keeps pointing to its old successor, so packets already passing it can continue.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+@return Answer the removed node, or #null when #name is unknown
+	 */
+	public Node remove (String name) {
+		assert isInitialized();
+		synchronized (topologyLock_) {
+			NodeIndex index = index();
+			int pos = index.positionOf(name);
+			if (pos < 0) {return null;};
+			Node removed = index.nodeAt(pos);
+			NodeIndex next = index.withRemoved(pos);
+			if (next.size() > 0) {
+				index.nodeAt((pos + index.size() - 1) % index.size()).nextNode_ = removed.nextNode_;
+			};
+			index_ = next;
+			firstNode_ = next.first();
+			workstations_.remove(removed.name_);
+			return removed;
+		}
+	}
+
+	/**
+Replace the node named #name by #node, at the same position in the token ring.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+@return Answer the replaced node, or #null when #name is unknown or #node's name is taken by another node
+	 */
+	public Node replace (String name, Node node) {
+		assert isInitialized();
+		synchronized (topologyLock_) {
+			NodeIndex index = index();
+			int pos = index.positionOf(name);
+			if (pos < 0) {return null;};
+			int taken = index.positionOf(node.name_);
+			if ((taken >= 0) && (taken != pos)) {return null;};
+			Node replaced = index.nodeAt(pos);
+			node.id_ = symbols_.register(node.name_);
+			metrics_.reserve(symbols_.size());
+			node.nextNode_ = (index.size() == 1) ? node : replaced.nextNode_;
+			NodeIndex next = index.withReplaced(pos, node);
+			index.nodeAt((pos + index.size() - 1) % index.size()).nextNode_ = node;
+			index_ = next;
+			firstNode_ = next.first();
+			workstations_.remove(replaced.name_);
+			if (node instanceof Workstation) {register((Workstation) node);};
+			return replaced;
+		}
+	}
+
+	/**
+Answer the number of hops a packet sent from #from travels before it reaches #to,
+or -1 when one of both is not on the token ring.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+	 */
+	public int hopDistance (String from, String to) {
+		return index().hopDistance(from, to);
+	}
+
+	/**
+Answer the ledger that accounts for every job printed on #receiver, per author, printer and workstation.
+	 */
+	public AccountingLedger ledger () {
+		return ledger_;
+	}
+
+	/**
+Answer the metrics of the requests handled by #receiver.
+	 */
+	public NetworkMetrics metrics () {
+		return metrics_;
+	}
+
+	/**
+Publish the metrics of #receiver as an MBean on the platform MBean server, under the name
+"lanSimulation:type=Network,name=#name".
+@return the name of the MBean, to unregister it
+	 */
+	public ObjectName registerMBean (String name) throws JMException {
+		ObjectName objectName = new ObjectName("lanSimulation:type=Network,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(metrics_, objectName);
+		return objectName;
+	}
+
+	/**
+Give #printer a spool queue of #capacity jobs with its own worker thread, see {@link PrintSpool}.
+From then on a packet that reaches #printer only enqueues its job, and a request succeeds once the
+job is queued: whether it is printed is reported later, from the worker thread of the spool.
+#policy decides what happens when the queue is full.
+<p><strong>Precondition:</strong> this.isInitialized() & #printer is a printer on the token ring without a spool;</p>
+@return the spool, to measure it and to shut it down
+	 */
+	public PrintSpool spool (String printer, int capacity, byte policy, long timeoutMillis) {
+		Node node = index().lookup(printer);
+		assert node instanceof Printer;
+		return new PrintSpool((Printer) node, capacity, policy, timeoutMillis, metrics_);
+	}
+
+	/**
+Answer whether #receiver is a consistent token ring network, like {@link #consistentNetwork()}.
+The verdict is derived from the counters of the index and cached per topology version,
+so it is only recomputed after the token ring changed.
+<p><strong>Precondition:</strong>this.isInitialized();</p>
+	 */
+	public boolean isConsistent () {
+		NodeIndex index = index();
+		long verdict = verdict_;
+		if ((verdict >> 1) != index.version()) {
+			verdict = (index.version() << 1) | (verifyIndex(index) ? 1 : 0);
+			verdict_ = verdict;
+		};
+		return (verdict & 1) == 1;
+	}
+
+	/**
+	 * Comprueba la consistencia de la red a partir de los contadores del índice
+	 * @param index índice del token ring actual
+	 * @return true/false si la red es consistente o no
+	 */
+	
+	private boolean verifyIndex(NodeIndex index) {
+		//only workstations are registered (see register), so counting them suffices
+		if (workstations_.isEmpty()) {return false;};
+		if (index.first() == null) {return false;};
+		if (! index.isCircular()) {return false;};//not circular
+		if (index.printerCount() == 0) {return false;};//does not contain a printer
+		return index.workstationCount() == workstations_.size(); //all workstations are registered
+	}
+
 	/**
 Answer whether #receiver is a consistent token ring network.
+Verifies the whole token ring on every call; see {@link #isConsistent()} for the cached verdict.
 A consistent token ring network
  - contains at least one workstation and one printer
  - is circular
@@ -156,38 +460,212 @@ A consistent token ring network
 The #receiver is requested to broadcast a message to all nodes.
 Therefore #receiver sends a special broadcast packet across the token ring network,
 which should be treated by all nodes.
-<p><strong>Precondition:</strong> consistentNetwork();</p>
+<p><strong>Precondition:</strong> isConsistent();</p>
 @param report Stream that will hold a report about what happened when handling the request.
 @return Anwer #true when the broadcast operation was succesful and #false otherwise
 	 */
 	public boolean requestBroadcast(Writer report) {
-		assert consistentNetwork();
+		return requestBroadcast(new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes, see {@link #requestBroadcast(Writer)}.
+<p><strong>Precondition:</strong> isConsistent();</p>
+@param report Sink that receives the events that happen when handling the request.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public boolean requestBroadcast(ReportSink report) {
+		assert isConsistent();
+		long start = System.nanoTime();
+
+		report.broadcastRequested();
+		relayBroadcast(report);
+		report.broadcastCompleted();
+		metrics_.broadcastHandled(System.nanoTime() - start);
+		return true;
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes, like {@link #requestBroadcast(Writer)},
+with the token ring split in segments that are handled in parallel on #pool.
+The report of every segment is rendered on its own and the reports are written on #report in token
+ring order, so #report receives exactly the same text as with the sequential broadcast.
+Small token rings are handled sequentially.
+<p><strong>Precondition:</strong> isConsistent();</p>
+@param report Stream that will hold a report about what happened when handling the request.
+@param pool Threads that handle the segments.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public boolean requestBroadcast(Writer report, ForkJoinPool pool) {
+		assert isConsistent();
+		NodeIndex ring = index();
+		int segments = segmentsFor(ring, pool);
+		if (segments == 1) {return requestBroadcast(report);};
 
+		long start = System.nanoTime();
+		ReportSink sink = new WriterReportSink(report);
+		sink.broadcastRequested();
+		StringWriter[] texts = new StringWriter[segments];
+		ReportSink[] fragments = new ReportSink[segments];
+		for (int i = 0; i < segments; i++) {
+			texts[i] = new StringWriter(reportCapacity(ring.size() / segments));
+			fragments[i] = new WriterReportSink(texts[i]);
+		}
+		pool.invoke(new BroadcastSegments(ring, fragments, 0, segments));
 		try {
-			report.write("Broadcast Request\n");
+			for (int i = 0; i < segments; i++) {
+				report.append(texts[i].getBuffer());
+			}
 		} catch (IOException exc) {
 			// just ignore
 		};
+		sink.broadcastCompleted();
+		metrics_.travelled(ring.size());
+		metrics_.broadcastHandled(System.nanoTime() - start);
+		return true;
+	}
 
-		Node currentNode = firstNode_;
-		Packet packet = new Packet("BROADCAST", firstNode_.name_, firstNode_.name_);
+	/**
+The #receiver is requested to broadcast a message to all nodes in parallel on #pool,
+see {@link #requestBroadcast(Writer, ForkJoinPool)}. The events of every segment are recorded
+and replayed on #report in token ring order.
+<p><strong>Precondition:</strong> isConsistent();</p>
+@param report Sink that receives the events that happen when handling the request.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public boolean requestBroadcast(ReportSink report, ForkJoinPool pool) {
+		assert isConsistent();
+		NodeIndex ring = index();
+		int segments = segmentsFor(ring, pool);
+		if (segments == 1) {return requestBroadcast(report);};
+
+		long start = System.nanoTime();
+		report.broadcastRequested();
+		RecordingReportSink[] fragments = new RecordingReportSink[segments];
+		for (int i = 0; i < segments; i++) {
+			fragments[i] = new RecordingReportSink();
+		}
+		pool.invoke(new BroadcastSegments(ring, fragments, 0, segments));
+		for (int i = 0; i < segments; i++) {
+			fragments[i].replay(report);
+		}
+		report.broadcastCompleted();
+		metrics_.travelled(ring.size());
+		metrics_.broadcastHandled(System.nanoTime() - start);
+		return true;
+	}
+
+	/**
+Send a broadcast packet once around the token ring of #receiver, as part of a broadcast that spans
+several token rings (see {@link MultiRingNetwork}): every node accepts the packet and passes it on,
+but the start and the end of the request are left to the caller.
+<p><strong>Precondition:</strong> isConsistent();</p>
+@param report Sink that receives the events that happen on this token ring.
+	 */
+	public void relayBroadcast(ReportSink report) {
+		NodeIndex ring = index();
+		Node currentNode = ring.first();
+		Packet packet = new Packet("BROADCAST", currentNode.name_, currentNode.name_, currentNode.id_, currentNode.id_);
 		
 		boolean broadcast = true;
-		currentNode = send(currentNode, packet, report, broadcast);
-		
-		try {
-			report.write(">>> Broadcast travelled whole token ring.\n\n");
-		} catch (IOException exc) {
-			// just ignore
-		};
-		return true;
+		send(ring, 0, packet, report, broadcast);
+	}
+
+	/**
+Send a packet from the node #from to the node #to over the token ring of #receiver, as part of a
+request that spans several token rings (see {@link MultiRingNetwork}). Every node that passes the
+packet on is reported; #to itself is not.
+<p><strong>Precondition:</strong> isConsistent() & #from is on the token ring;</p>
+@return the node #to once the packet reached it, or null when the packet travelled the complete token ring without finding #to
+	 */
+	public Node relay(String from, String to, ReportSink report) {
+		NodeIndex ring = index();
+		int originPos = ring.positionOf(from);
+		assert originPos >= 0;
+		Node destination = ring.lookup(to);
+		Packet packet = new Packet("RELAY", from, to, ring.nodeAt(originPos).id_,
+				(destination == null) ? SymbolTable.NO_ID : destination.id_);
+		Node currentNode = send(ring, originPos, packet, report, false);
+		return (packet.destinationId_ == currentNode.id_) ? currentNode : null;
+	}
+
+	/**
+Deliver #document, requested by #workstation on another token ring, to #printer on the token ring of
+#receiver, once a packet relayed there (see {@link #relay(String, String, ReportSink)}).
+The job is accounted for on the ledger of #receiver.
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean deliver(Node printer, String workstation, String document, ReportSink report) {
+		Packet packet = new Packet(document, workstation, printer.name_, SymbolTable.NO_ID, printer.id_);
+		packet.ledger_ = ledger_;
+		return delivered(packet, packet.print(printer, report));
+	}
+
+	/**
+	 * Número de segmentos en que se divide el token ring para un broadcast en paralelo
+	 * @return 1 si el token ring es demasiado pequeño o el pool tiene un solo hilo, y no merece la pena dividirlo
+	 */
+	private static int segmentsFor(NodeIndex ring, ForkJoinPool pool) {
+		if (pool.getParallelism() < 2) {return 1;};
+		int segments = Math.min(ring.size() / BroadcastSegments.MIN_SEGMENT_SIZE, 4 * pool.getParallelism());
+		return Math.max(segments, 1);
+	}
+
+	/**
+	 * Capacidad inicial del texto del report de un broadcast, unos 64 caracteres por nodo;
+	 * se calcula en long y se limita, para que un token ring muy grande no desborde el int
+	 * @param nodes número de nodos que cubre el report
+	 */
+	static int reportCapacity(long nodes) {
+		return (int) Math.min(64L * nodes, MAX_REPORT_CAPACITY);
+	}
+
+	/**
+	 * Tarea que reparte un paquete broadcast por un rango de segmentos del token ring;
+	 * el segmento i va desde la posición i * size / segments hasta la del segmento siguiente
+	 */
+	private class BroadcastSegments extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int MIN_SEGMENT_SIZE = 4096;
+
+		private final NodeIndex ring_;
+		private final ReportSink[] fragments_;
+		private final int from_, to_;
+
+		BroadcastSegments(NodeIndex ring, ReportSink[] fragments, int from, int to) {
+			ring_ = ring;
+			fragments_ = fragments;
+			from_ = from;
+			to_ = to;
+		}
+
+		protected void compute() {
+			if (to_ - from_ > 1) {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new BroadcastSegments(ring_, fragments_, from_, middle),
+						new BroadcastSegments(ring_, fragments_, middle, to_));
+				return;
+			};
+			ReportSink fragment = fragments_[from_];
+			int start = (int) ((long) from_ * ring_.size() / fragments_.length);
+			int end = (int) ((long) (from_ + 1) * ring_.size() / fragments_.length);
+			for (int pos = start; pos < end; pos++) {
+				Node n = ring_.nodeAt(pos);
+				n.acceptBroadcastPackage(fragment);
+				n.logging(fragment);
+				metrics_.forwarded(n.id_);
+			}
+			metrics_.accepted(end - start);
+		}
 	}
 
 	/**
 The #receiver is requested by #workstation to print #document on #printer.
 Therefore #receiver sends a packet across the token ring network, until either
 (1) #printer is reached or (2) the packet travelled complete token ring.
-<p><strong>Precondition:</strong> consistentNetwork() & hasWorkstation(workstation);</p>
+Requests for a #printer that is not on the token ring or that is not a printer are
+cancelled right away, without sending a packet.
+<p><strong>Precondition:</strong> isConsistent() & hasWorkstation(workstation);</p>
 @param workstation Name of the workstation requesting the service.
 @param document Contents that should be printed on the printer.
 @param printer Name of the printer that should receive the document.
@@ -196,68 +674,279 @@ Therefore #receiver sends a packet across the token ring network, until either
 	 */
 	public boolean requestWorkstationPrintsDocument(String workstation, String document,
 			String printer, Writer report) {
-		assert consistentNetwork() & hasWorkstation(workstation);
+		return requestWorkstationPrintsDocument(workstation, document, printer, new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer,
+see {@link #requestWorkstationPrintsDocument(String, String, String, Writer)}.
+<p><strong>Precondition:</strong> isConsistent() & hasWorkstation(workstation);</p>
+@param report Sink that receives the events that happen when handling the request.
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, ReportSink report) {
+		return requestPrint(workstation, document, null, printer, report);
+	}
+
+	/**
+The #receiver is requested by #workstation to print the streamed #document on #printer,
+see {@link #requestWorkstationPrintsDocument(String, String, String, Writer)}.
+Only the header of #document is read before the packet is sent and shows up in #report; when the
+packet reaches #printer the whole document is copied to the output the printer is connected to.
+When the request fails the document is closed without being read.
+When #printer has a spool (see {@link #spool(String, int, byte, long)}) the document is copied once the job is printed.
+<p><strong>Precondition:</strong> isConsistent() & hasWorkstation(workstation) & ! document.isDelivered();</p>
+@param report Stream that will hold a report about what happened when handling the request.
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, Payload document,
+			String printer, Writer report) {
+		return requestWorkstationPrintsDocument(workstation, document, printer, new WriterReportSink(report));
+	}
 
+	/**
+The #receiver is requested by #workstation to print the streamed #document on #printer,
+see {@link #requestWorkstationPrintsDocument(String, Payload, String, Writer)}.
+<p><strong>Precondition:</strong> isConsistent() & hasWorkstation(workstation) & ! document.isDelivered();</p>
+@param report Sink that receives the events that happen when handling the request.
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, Payload document,
+			String printer, ReportSink report) {
+		assert ! document.isDelivered();
+		boolean result = false;
 		try {
-			report.write("'");
-			report.write(workstation);
-			report.write("' requests printing of '");
-			report.write(document);
-			report.write("' on '");
-			report.write(printer);
-			report.write("' ...\n");
-		} catch (IOException exc) {
-			// just ignore
-		};
+			result = requestPrint(workstation, document.header(), document, printer, report);
+			return result;
+		} finally {
+			//a job queued on the spool of the printer is delivered later on
+			if (! result && ! document.isDelivered()) {
+				try {
+					document.close();
+				} catch (IOException exc) {
+					// just ignore
+				};
+			};
+		}
+	}
+
+	/**
+	 * Atiende una petición de impresión
+	 * @param document documento, o su cabecera si se envía como payload
+	 * @param payload documento enviado como payload, null si va entero en el paquete
+	 * @return true si el documento se ha impreso
+	 */
+	private boolean requestPrint(String workstation, String document, Payload payload,
+			String printer, ReportSink report) {
+		long start = System.nanoTime();
+		boolean result = routePrint(workstation, document, payload, printer, report);
+		metrics_.printHandled(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Envía el paquete de una petición de impresión hasta la impresora
+	 * @return true si el documento se ha impreso
+	 */
+	private boolean routePrint(String workstation, String document, Payload payload,
+			String printer, ReportSink report) {
+		assert isConsistent() & hasWorkstation(workstation);
+
+		NodeIndex ring = index();
+		Packet packet = packetFor(ring, workstation, document, payload, printer, report);
+		if (packet == null) {return false;};
 
 		boolean result = false;
 		Node currentNode;
-		Packet packet = new Packet(document, workstation, printer);
-
-		currentNode = (Node) workstations_.get(workstation);
-		
 		boolean broadcast = false;
-		currentNode = send(currentNode, packet, report, broadcast);
+		currentNode = send(ring, ring.positionOf(workstation), packet, report, broadcast);
 		
-		if (packet.destination_.equals(currentNode.name_)) {
-			result = packet.print(currentNode, report);
+		if (packet.destinationId_ == currentNode.id_) {
+			result = delivered(packet, packet.print(currentNode, report));
 		} else {
-			try {
-				report.write(">>> Destinition not found, print job cancelled.\n\n");
-				report.flush();
-			} catch (IOException exc) {
-				// just ignore
-			};
-			result = false;
+			result = cancel(ReportSink.DESTINATION_NOT_FOUND, report);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Informa de una petición de impresión y prepara su paquete, o la cancela si el destino no es una impresora
+	 * @param ring versión del token ring por la que viajará el paquete
+	 * @param payload documento enviado como payload, null si va entero en el paquete
+	 * @return el paquete, o null si la petición se ha cancelado
+	 */
+	private Packet packetFor(NodeIndex ring, String workstation, String document, Payload payload,
+			String printer, ReportSink report) {
+		report.printRequested(workstation, document, printer);
+
+		byte destinationType = ring.typeOf(printer);
+		if (destinationType == NodeIndex.UNKNOWN) {
+			cancel(ReportSink.DESTINATION_NOT_FOUND, report);
+			return null;
+		} else if (destinationType != NodeIndex.PRINTER) {
+			cancel(ReportSink.DESTINATION_NOT_A_PRINTER, report);
+			return null;
+		};
+
+		int originId = ring.lookup(workstation).id_, destinationId = ring.lookup(printer).id_;
+		Packet packet = (payload == null)
+				? new Packet(document, workstation, printer, originId, destinationId)
+				: new Packet(payload, workstation, printer, originId, destinationId);
+		packet.ledger_ = ledger_;
+		return packet;
+	}
+
+	/**
+The #receiver is requested to print a batch of #jobs, with the same results as when each job had been
+requested on its own with {@link #requestWorkstationPrintsDocument(String, String, String, Writer)}.
+The jobs of one workstation share a single pass over the token ring: their packets leave together and
+each one is delivered when the pass reaches its printer, so a node passes them on once per workstation
+instead of once per job. The report lists, per workstation in the order of their first job, the requests
+(and cancellations) of its jobs, then the nodes of the pass and the deliveries as they happen.
+All jobs travel the same snapshot of the token ring, so the batch sees a single topology even when it
+changes meanwhile.
+<p><strong>Precondition:</strong> isConsistent() & hasWorkstation(job.workstation_) for all #jobs;</p>
+@param jobs Print jobs to handle.
+@param report Stream that will hold a report about what happened when handling the requests.
+@return Answer for each job #true when it was printed succesfully and #false otherwise
+	 */
+	public boolean[] requestWorkstationsPrintDocuments(List<PrintJob> jobs, Writer report) {
+		return requestWorkstationsPrintDocuments(jobs, new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested to print a batch of #jobs, see {@link #requestWorkstationsPrintDocuments(List, Writer)}.
+<p><strong>Precondition:</strong> isConsistent() & hasWorkstation(job.workstation_) for all #jobs;</p>
+@param report Sink that receives the events that happen when handling the requests.
+@return Answer for each job #true when it was printed succesfully and #false otherwise
+	 */
+	public boolean[] requestWorkstationsPrintDocuments(List<PrintJob> jobs, ReportSink report) {
+		assert isConsistent();
+
+		NodeIndex ring = index();
+		boolean[] results = new boolean[jobs.size()];
+		//the jobs of each workstation, in the order of its first job
+		LinkedHashMap<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < jobs.size(); i++) {
+			List<Integer> group = groups.get(jobs.get(i).workstation_);
+			if (group == null) {
+				group = new ArrayList<Integer>();
+				groups.put(jobs.get(i).workstation_, group);
+			};
+			group.add(Integer.valueOf(i));
+		}
+		for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+			printGroup(ring, group.getKey(), group.getValue(), jobs, results, report);
+		}
+		return results;
+	}
+
+	/**
+	 * Envía juntos los trabajos de una workstation en una sola pasada por el token ring
+	 * @param jobs posiciones en #all de los trabajos de la workstation
+	 * @param results donde se anota el resultado de cada trabajo
+	 */
+	private void printGroup(NodeIndex ring, String workstation, List<Integer> jobs, List<PrintJob> all,
+			boolean[] results, ReportSink report) {
+		assert hasWorkstation(workstation);
+		long start = System.nanoTime();
+		int origin = ring.positionOf(workstation);
+		Packet[] packets = new Packet[jobs.size()];
+		//hops from the workstation to the printer of each packet, the jobs sorted by that distance
+		final int[] hops = new int[jobs.size()];
+		Integer[] byDistance = new Integer[jobs.size()];
+		int sent = 0;
+		for (int k = 0; k < jobs.size(); k++) {
+			PrintJob job = all.get(jobs.get(k).intValue());
+			packets[k] = packetFor(ring, workstation, job.document_, null, job.printer_, report);
+			if (packets[k] == null) {
+				metrics_.printHandled(System.nanoTime() - start);
+			} else {
+				hops[k] = ring.hopDistance(workstation, job.printer_);
+				byDistance[sent++] = Integer.valueOf(k);
+			};
+		}
+		Arrays.sort(byDistance, 0, sent, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(hops[a.intValue()], hops[b.intValue()]);
+			}
+		});
+
+		int pos = origin, hop = 0;
+		for (int d = 0; d < sent; d++) {
+			int k = byDistance[d].intValue();
+			for (; hop < hops[k]; hop++) {
+				Node n = ring.nodeAt(pos);
+				n.logging(report);
+				metrics_.forwarded(n.id_);
+				pos = ring.nextPosition(pos);
+			}
+			results[jobs.get(k).intValue()] = delivered(packets[k], packets[k].print(ring.nodeAt(pos), report));
+			metrics_.printHandled(System.nanoTime() - start);
+		}
+		if (sent > 0) {metrics_.travelled(hop);};
+	}
+
+	/**
+	 * Cancela una petición de impresión sin entregar el paquete
+	 * @param reason motivo de la cancelación
+	 * @param report donde se informa de la cancelación
+	 * @return siempre false, la impresión no se ha realizado
+	 */
+	
+	private boolean cancel(byte reason, ReportSink report) {
+		report.deliveryFailed(reason);
+		metrics_.failed(reason);
+		return false;
+	}
+
+	/**
+	 * Mide el resultado de entregar un paquete a una impresora
+	 * @param packet paquete entregado; si no se imprime, su motivo es la cola llena o un fallo de la salida
+	 * @param printed resultado de Packet#print
+	 * @return el mismo resultado
+	 */
+	private boolean delivered(Packet packet, boolean printed) {
+		if (printed) {
+			//a queued job is measured by the spool once it is printed
+			if (! packet.queued_) {metrics_.delivered();};
+		} else {
+			metrics_.failed(packet.failure_);
+		};
+		return printed;
+	}
+
 	/**
 	 * Envía un paquete por la red hasta que llega al nodo destino
 	 *  (puede incluir una opción broadcast que lo envía a todos sin distinción)
-	 * @param n nodo al que se le envia el paquete
+	 *  El paquete recorre la versión del token ring indicada, aunque la topología cambie mientras tanto
+	 * @param ring versión del token ring por la que viaja el paquete
+	 * @param pos posición del nodo al que se le envia el paquete
 	 * @param p paquete con la información enviada
 	 * @param r donde se guarda dicha información
 	 * @param broadcast nos permite distinguir entre los paquetes de tipo broadcast y los normales
 	 * @return nodo al que se le envia el paquete
 	 */
 	
-	private Node send(Node n, Packet p, Writer r, boolean broadcast) {
+	private Node send(NodeIndex ring, int pos, Packet p, ReportSink r, boolean broadcast) {
+		Node n = ring.nodeAt(pos);
+		int hops = 0;
 		do {
-			try {
-				if(broadcast){
-					n.acceptBroadcastPackage(r);
-				}
-				n.logging(r);
-			}catch(IOException exc) {
-				// just ignore
+			if(broadcast){
+				n.acceptBroadcastPackage(r);
 			}
+			n.logging(r);
+			metrics_.forwarded(n.id_);
+			hops++;
 			
-			n = n.nextNode_;
-		} while(n.atDestination(p.destination_) 
-				& ((broadcast)?true:n.atDestination(p.origin_)));
+			pos = ring.nextPosition(pos);
+			n = ring.nodeAt(pos);
+		} while(n.atDestination(p.destinationId_) 
+				& ((broadcast)?true:n.atDestination(p.originId_)));
+		if (broadcast) {metrics_.accepted(hops);};
+		metrics_.travelled(hops);
 		return n;
 	}
 	
@@ -295,4 +984,24 @@ Return a printable representation of #receiver.
 		firstNode_.printXMLOn(buf);
 	}
 	
+	/**
+	 * Trabajo de impresión para {@link Network#requestWorkstationsPrintDocuments(List, Writer)}
+	 */
+	public static class PrintJob {
+		public final String workstation_;
+		public final String document_;
+		public final String printer_;
+
+		/**
+		 * @param workstation nombre de la workstation que pide la impresión
+		 * @param document contenido a imprimir
+		 * @param printer nombre de la impresora destino
+		 */
+		public PrintJob(String workstation, String document, String printer) {
+			workstation_ = workstation;
+			document_ = document;
+			printer_ = printer;
+		}
+	}
+
 }
@@ -0,0 +1,267 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+A <em>PartitionedNetwork</em> is a single token ring split over several processes on the same host.
+Every process runs a <em>SegmentServer</em> that owns a contiguous range of positions of the token ring
+stored in a <em>TopologySnapshot</em>, so no process holds the complete token ring. When a packet
+leaves a segment it is handed over, through loopback sockets in the framing of {@link SegmentProtocol},
+to the process that owns the next node. The report events of every segment are streamed back and
+passed on in order, so requests give the same results and reports as on a single <em>Network</em>
+loaded from the same snapshot.
+<p>Requests are handled one at a time.</p>
+ */
+public class PartitionedNetwork implements Closeable {
+	/**
+    Holds the first position of every segment, and the size of the token ring as the last entry.
+	 */
+	private final int[] starts_;
+	private final Process[] processes_;
+	private final Socket[] sockets_;
+	private final DataInputStream[] in_;
+	private final DataOutputStream[] out_;
+
+	private PartitionedNetwork(int size, int segments) {
+		starts_ = new int[segments + 1];
+		for (int i = 0; i <= segments; i++) {
+			starts_[i] = (int) ((long) size * i / segments);
+		}
+		processes_ = new Process[segments];
+		sockets_ = new Socket[segments];
+		in_ = new DataInputStream[segments];
+		out_ = new DataOutputStream[segments];
+	}
+
+	/**
+Start #segments processes, each owning an equal share of the token ring in the snapshot #file,
+and connect to them. The processes run with the class path of the current one.
+<p><strong>Precondition:</strong> 0 < segments & segments <= size of the token ring;</p>
+	 */
+	public static PartitionedNetwork launch(Path file, int segments) throws IOException {
+		int size = TopologySnapshot.map(file).size();
+		assert (0 < segments) & (segments <= size);
+		PartitionedNetwork network = new PartitionedNetwork(size, segments);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		try {
+			for (int i = 0; i < segments; i++) {
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						SegmentServer.class.getName(), file.toAbsolutePath().toString(),
+						Integer.toString(network.starts_[i]), Integer.toString(network.starts_[i + 1]));
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				network.processes_[i] = builder.start();
+			}
+			for (int i = 0; i < segments; i++) {
+				network.connect(i, readPort(network.processes_[i]));
+			}
+		} catch (IOException exc) {
+			network.close();
+			throw exc;
+		}
+		return network;
+	}
+
+	/**
+	 * Lee el puerto que anuncia el proceso del segmento en su salida estándar
+	 */
+	private static int readPort(Process process) throws IOException {
+		BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+		String line = out.readLine();
+		if (line == null) {
+			throw new IOException("Segment process exited before listening");
+		};
+		return Integer.parseInt(line.trim());
+	}
+
+	private void connect(int segment, int port) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		sockets_[segment] = socket;
+		in_[segment] = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+		out_[segment] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+	}
+
+	/**
+	 * @return número de segmentos
+	 */
+	public int segmentCount() {
+		return processes_.length;
+	}
+
+	/**
+	 * @param pos posición en el token ring
+	 * @return número del segmento que tiene el nodo de esa posición
+	 */
+	public int segmentOf(int pos) {
+		int i = Arrays.binarySearch(starts_, pos);
+		return (i < 0) ? -i - 2 : i;
+	}
+
+	/**
+	 * Busca un nodo en todos los segmentos a la vez
+	 * @param name nombre del nodo
+	 * @return posición y tipo del nodo, o null si no está en el token ring
+	 */
+	private int[] locate(String name) throws IOException {
+		for (DataOutputStream out : out_) {
+			out.writeByte(SegmentProtocol.LOCATE);
+			SegmentProtocol.writeString(out, name);
+			out.flush();
+		}
+		int[] found = null;
+		for (DataInputStream in : in_) {
+			int pos = in.readInt();
+			byte type = in.readByte();
+			if ((found == null) && (pos >= 0)) {found = new int[] {pos, type};};
+		}
+		return found;
+	}
+
+	/**
+	 * Lleva el paquete de segmento en segmento hasta que llega al destino o vuelve al origen
+	 * @param pos posición del primer nodo que pasa el paquete
+	 * @return posición del nodo al que ha llegado el paquete
+	 */
+	private int travel(int pos, int origin, int destination, boolean broadcast, ReportSink report) throws IOException {
+		do {
+			int segment = segmentOf(pos);
+			DataOutputStream out = out_[segment];
+			out.writeByte(SegmentProtocol.WALK);
+			out.writeBoolean(broadcast);
+			out.writeInt(pos);
+			out.writeInt(origin);
+			out.writeInt(destination);
+			out.flush();
+			pos = SegmentProtocol.replay(in_[segment], report);
+		} while ((pos != destination) && (pos != origin));
+		return pos;
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer,
+see {@link Network#requestWorkstationPrintsDocument(String, String, String, Writer)}.
+<p><strong>Precondition:</strong> #workstation is a workstation on the token ring;</p>
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, Writer report) throws IOException {
+		return requestWorkstationPrintsDocument(workstation, document, printer, new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested by #workstation to print #document on #printer,
+see {@link #requestWorkstationPrintsDocument(String, String, String, Writer)}.
+@return Anwer #true when the print operation was succesful and #false otherwise
+	 */
+	public synchronized boolean requestWorkstationPrintsDocument(String workstation, String document,
+			String printer, ReportSink report) throws IOException {
+		int[] origin = locate(workstation);
+		assert (origin != null) && (origin[1] == NodeIndex.WORKSTATION);
+
+		report.printRequested(workstation, document, printer);
+
+		int[] destination = locate(printer);
+		if (destination == null) {
+			report.deliveryFailed(ReportSink.DESTINATION_NOT_FOUND);
+			return false;
+		} else if (destination[1] != NodeIndex.PRINTER) {
+			report.deliveryFailed(ReportSink.DESTINATION_NOT_A_PRINTER);
+			return false;
+		};
+
+		if (travel(origin[0], origin[0], destination[0], false, report) != destination[0]) {
+			report.deliveryFailed(ReportSink.DESTINATION_NOT_FOUND);
+			return false;
+		};
+		int segment = segmentOf(destination[0]);
+		DataOutputStream out = out_[segment];
+		out.writeByte(SegmentProtocol.DELIVER);
+		out.writeInt(destination[0]);
+		SegmentProtocol.writeString(out, workstation);
+		SegmentProtocol.writeString(out, document);
+		out.flush();
+		return SegmentProtocol.replay(in_[segment], report) == 1;
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes, see {@link Network#requestBroadcast(Writer)}.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public boolean requestBroadcast(Writer report) throws IOException {
+		return requestBroadcast(new WriterReportSink(report));
+	}
+
+	/**
+The #receiver is requested to broadcast a message to all nodes, see {@link #requestBroadcast(Writer)}.
+@return Anwer #true when the broadcast operation was succesful and #false otherwise
+	 */
+	public synchronized boolean requestBroadcast(ReportSink report) throws IOException {
+		report.broadcastRequested();
+		travel(0, 0, 0, true, report);
+		report.broadcastCompleted();
+		return true;
+	}
+
+	/**
+Close the connections with the segments and wait for their processes to exit.
+	 */
+	public synchronized void close() throws IOException {
+		for (int i = 0; i < processes_.length; i++) {
+			if (sockets_[i] != null) {
+				try {
+					out_[i].writeByte(SegmentProtocol.CLOSE);
+					out_[i].flush();
+					sockets_[i].close();
+				} catch (IOException exc) {
+					// just ignore
+				};
+				sockets_[i] = null;
+			};
+			if (processes_[i] != null) {
+				try {
+					if (! processes_[i].waitFor(5, TimeUnit.SECONDS)) {processes_[i].destroyForcibly();};
+				} catch (InterruptedException exc) {
+					processes_[i].destroyForcibly();
+					Thread.currentThread().interrupt();
+				};
+				processes_[i] = null;
+			};
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+A <em>RequestProcessor</em> serves print and broadcast requests on a <em>Network</em> from a pool of threads.
+Each request gets its own report, so many requests can be submitted at the same time.
+ */
+public class RequestProcessor {
+	/**
+    Holds the network on which the requests are issued.
+	 */
+	private final Network network_;
+	/**
+    Holds the threads that handle the requests.
+	 */
+	private final ExecutorService executor_;
+
+	/**
+Construct a <em>RequestProcessor</em> with one thread per available processor.
+<p><strong>Precondition:</strong> network.isInitialized();</p>
+	 */
+	public RequestProcessor(Network network) {
+		this(network, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+Construct a <em>RequestProcessor</em> with #threads threads.
+<p><strong>Precondition:</strong> network.isInitialized() & threads > 0;</p>
+	 */
+	public RequestProcessor(Network network, int threads) {
+		assert network.isInitialized() & (threads > 0);
+		network_ = network;
+		executor_ = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+Submit a request of #workstation to print #document on #printer.
+@see Network#requestWorkstationPrintsDocument(String, String, String, java.io.Writer)
+@return the outcome of the request, once it has been handled
+	 */
+	public Future<Outcome> submitPrint(final String workstation, final String document, final String printer) {
+		return executor_.submit(new Callable<Outcome>() {
+			public Outcome call() {
+				StringWriter report = new StringWriter(100);
+				boolean result = network_.requestWorkstationPrintsDocument(workstation, document, printer, report);
+				return new Outcome(result, report.toString());
+			}
+		});
+	}
+
+	/**
+Submit a broadcast request.
+@see Network#requestBroadcast(java.io.Writer)
+@return the outcome of the request, once it has been handled
+	 */
+	public Future<Outcome> submitBroadcast() {
+		return executor_.submit(new Callable<Outcome>() {
+			public Outcome call() {
+				StringWriter report = new StringWriter(100);
+				boolean result = network_.requestBroadcast(report);
+				return new Outcome(result, report.toString());
+			}
+		});
+	}
+
+	/**
+Stop accepting requests and wait until the submitted ones have been handled.
+	 */
+	public void shutdown() throws InterruptedException {
+		executor_.shutdown();
+		executor_.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Resultado de una petición: si tuvo éxito y el informe generado al atenderla
+	 */
+	public static class Outcome {
+		private final boolean succeeded_;
+		private final String report_;
+
+		public Outcome(boolean succeeded, String report) {
+			succeeded_ = succeeded;
+			report_ = report;
+		}
+
+		/**
+		 * @return true si la petición tuvo éxito
+		 */
+		public boolean succeeded() {
+			return succeeded_;
+		}
+
+		/**
+		 * @return informe de lo ocurrido al atender la petición
+		 */
+		public String report() {
+			return report_;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+The binary framing spoken between a <em>PartitionedNetwork</em> and its <em>SegmentServer</em>s.
+A request is an opcode byte followed by its arguments; the reply is a sequence of report events,
+each a kind byte followed by its arguments, closed by an END byte and an int result.
+Ints are big endian; strings are an int length followed by that many UTF-8 bytes.
+<pre>
+    LOCATE  name                               reply: int position (-1 if not on the segment), byte type
+    WALK    byte broadcast, int position, int origin, int destination
+                                               reply: events, END, int position the packet reached
+    DELIVER int position, workstation, document reply: events, END, int 1 if printed, 0 otherwise
+    CLOSE
+</pre>
+ */
+final class SegmentProtocol {
+	/**
+	 * Peticiones del coordinador a un segmento
+	 */
+	static final byte LOCATE = 1, WALK = 2, DELIVER = 3, CLOSE = 4;
+	/**
+	 * Eventos de la respuesta de un segmento
+	 */
+	static final byte END = 0, HOP = 1, BROADCAST_ACCEPTED = 2, ACCOUNTING_ASCII = 3, ACCOUNTING_POSTSCRIPT = 4,
+			DELIVERY_FAILED = 5;
+
+	private SegmentProtocol() {
+	}
+
+	static void writeString(DataOutputStream out, CharSequence text) throws IOException {
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Lee los eventos de una respuesta y los envía al sink, en orden
+	 * @param in conexión con el segmento
+	 * @param report sink que recibe los eventos
+	 * @return el resultado que cierra la respuesta
+	 */
+	static int replay(DataInputStream in, ReportSink report) throws IOException {
+		byte kind;
+		while ((kind = in.readByte()) != END) {
+			switch (kind) {
+			case HOP:
+				report.hop(readString(in));
+				break;
+			case BROADCAST_ACCEPTED:
+				report.broadcastAccepted(readString(in));
+				break;
+			case ACCOUNTING_ASCII:
+			case ACCOUNTING_POSTSCRIPT:
+				report.accounting(readString(in), readString(in), kind == ACCOUNTING_POSTSCRIPT);
+				break;
+			case DELIVERY_FAILED:
+				report.deliveryFailed(in.readByte());
+				break;
+			default:
+				throw new IOException("Unknown segment event " + kind);
+			};
+		}
+		return in.readInt();
+	}
+
+	/**
+An <em>EventWriter</em> frames the report events of a segment on the connection with the coordinator.
+The start and the end of requests are not framed: the coordinator reports them itself, so they are
+ignored here.
+	 */
+	static class EventWriter implements ReportSink {
+		private final DataOutputStream out_;
+
+		EventWriter(DataOutputStream out) {
+			out_ = out;
+		}
+
+		/**
+		 * Cierra la respuesta con su resultado y la envía
+		 */
+		void end(int result) throws IOException {
+			out_.writeByte(END);
+			out_.writeInt(result);
+			out_.flush();
+		}
+
+		/**
+		 * No se envía: el coordinador informa él mismo del principio de la petición
+		 */
+		public void printRequested(String workstation, String document, String printer) {
+		}
+
+		/**
+		 * No se envía: el coordinador informa él mismo del principio del broadcast
+		 */
+		public void broadcastRequested() {
+		}
+
+		public void hop(String node) {
+			write(HOP, node, null);
+		}
+
+		public void broadcastAccepted(String node) {
+			write(BROADCAST_ACCEPTED, node, null);
+		}
+
+		/**
+		 * No se envía: el coordinador informa él mismo del final del broadcast
+		 */
+		public void broadcastCompleted() {
+		}
+
+		public void accounting(CharSequence author, CharSequence title, boolean postscript) {
+			write(postscript ? ACCOUNTING_POSTSCRIPT : ACCOUNTING_ASCII, author, title);
+		}
+
+		public void deliveryFailed(byte reason) {
+			try {
+				out_.writeByte(DELIVERY_FAILED);
+				out_.writeByte(reason);
+			} catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+		}
+
+		private void write(byte kind, CharSequence arg1, CharSequence arg2) {
+			try {
+				out_.writeByte(kind);
+				writeString(out_, arg1);
+				if (arg2 != null) {writeString(out_, arg2);};
+			} catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+A <em>SegmentServer</em> owns the nodes at positions #start up to #end of a token ring stored in a
+<em>TopologySnapshot</em>, and moves packets over them on behalf of a <em>PartitionedNetwork</em>
+(see {@link SegmentProtocol}). Only the nodes of its own segment are ever created.
+<p>Run as a process with the arguments <code>snapshotFile start end</code>: the server listens on a
+free loopback port, prints that port on a line of its standard output, serves one connection and exits.</p>
+ */
+public class SegmentServer {
+	private final TopologySnapshot snapshot_;
+	private final int start_, end_;
+	private final Node[] nodes_;
+	/**
+    Maps the name of every node of the segment on its position; the first position when names repeat.
+	 */
+	private final HashMap<String, Integer> positions_;
+
+	/**
+Construct the <em>SegmentServer</em> for the nodes at positions #start up to (not including) #end of #snapshot.
+<p><strong>Precondition:</strong> 0 <= start & start < end & end <= snapshot.size();</p>
+	 */
+	public SegmentServer(TopologySnapshot snapshot, int start, int end) {
+		assert (0 <= start) & (start < end) & (end <= snapshot.size());
+		snapshot_ = snapshot;
+		start_ = start;
+		end_ = end;
+		nodes_ = new Node[end - start];
+		positions_ = new HashMap<String, Integer>(2 * nodes_.length);
+		Node outer = new Node();
+		for (int pos = start; pos < end; pos++) {
+			nodes_[pos - start] = snapshot.nodeAt(pos, outer);
+			if (! positions_.containsKey(nodes_[pos - start].name_)) {
+				positions_.put(nodes_[pos - start].name_, Integer.valueOf(pos));
+			};
+		}
+	}
+
+	private boolean owns(int pos) {
+		return (start_ <= pos) && (pos < end_);
+	}
+
+	/**
+Handle the requests on #socket until the coordinator closes the connection.
+	 */
+	public void serve(Socket socket) throws IOException {
+		socket.setTcpNoDelay(true);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+		SegmentProtocol.EventWriter events = new SegmentProtocol.EventWriter(out);
+		try {
+			while (true) {
+				byte op = in.readByte();
+				switch (op) {
+				case SegmentProtocol.LOCATE:
+					Integer pos = positions_.get(SegmentProtocol.readString(in));
+					out.writeInt((pos == null) ? -1 : pos.intValue());
+					out.writeByte((pos == null) ? NodeIndex.UNKNOWN : snapshot_.typeOf(pos.intValue()));
+					out.flush();
+					break;
+				case SegmentProtocol.WALK:
+					boolean broadcast = in.readBoolean();
+					int from = in.readInt(), origin = in.readInt(), destination = in.readInt();
+					events.end(walk(from, origin, destination, broadcast, events));
+					break;
+				case SegmentProtocol.DELIVER:
+					int printer = in.readInt();
+					String workstation = SegmentProtocol.readString(in), document = SegmentProtocol.readString(in);
+					events.end(deliver(printer, workstation, document, events) ? 1 : 0);
+					break;
+				case SegmentProtocol.CLOSE:
+					return;
+				default:
+					throw new IOException("Unknown segment request " + op);
+				};
+			}
+		} catch (EOFException exc) {
+			// just ignore
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Pasa el paquete por los nodos del segmento, como Network.send, hasta que llega al destino,
+	 * vuelve al origen o sale del segmento
+	 * @param pos posición del primer nodo que pasa el paquete
+	 * @return posición del nodo al que ha llegado el paquete
+	 */
+	private int walk(int pos, int origin, int destination, boolean broadcast, ReportSink report) {
+		assert owns(pos);
+		do {
+			Node n = nodes_[pos - start_];
+			if (broadcast) {n.acceptBroadcastPackage(report);};
+			n.logging(report);
+			pos = snapshot_.next(pos);
+		} while (owns(pos) && (pos != destination) && (pos != origin));
+		return pos;
+	}
+
+	private boolean deliver(int pos, String workstation, String document, ReportSink report) {
+		assert owns(pos);
+		Node printer = nodes_[pos - start_];
+		return new Packet(document, workstation, printer.name_).print(printer, report);
+	}
+
+	public static void main(String args[]) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: SegmentServer snapshotFile start end");
+			System.exit(1);
+		};
+		TopologySnapshot snapshot = TopologySnapshot.map(Paths.get(args[0]));
+		SegmentServer server = new SegmentServer(snapshot, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+		ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		try {
+			System.out.println(listener.getLocalPort());
+			System.out.flush();
+			server.serve(listener.accept());
+		} finally {
+			listener.close();
+		}
+	}
+}
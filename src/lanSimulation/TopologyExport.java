@@ -0,0 +1,102 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+A <em>TopologyExport</em> dumps the text, HTML or XML representation of a token ring to a file.
+The representation is encoded as UTF-8 straight into direct or memory-mapped byte buffers while the
+token ring is rendered, so it is never held in memory as a whole.
+ */
+public class TopologyExport {
+	/**
+	 * Formatos de exportación: los de Node.printOn, Node.printHTMLOn y Node.printXMLOn
+	 */
+	public static final byte TEXT = 0, HTML = 1, XML = 2;
+
+	/**
+Write the representation of the token ring starting at #first in #format on #file, replacing its contents.
+<p><strong>Precondition:</strong> first != null;</p>
+@param mapped #true to write through the file mapped in memory, #false to write through a channel
+@return Answer the size of the file in bytes
+	 */
+	public static long export(Node first, byte format, Path file, boolean mapped) throws IOException {
+		assert first != null;
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		long size;
+		try {
+			size = export(first, format, channel, mapped);
+		} catch (Throwable exc) {
+			closeAfter(exc, channel);
+			throw exc;
+		}
+		channel.close();
+		return size;
+	}
+
+	/**
+Write the representation of the token ring starting at #first in #format on #channel, from its current position.
+<p><strong>Precondition:</strong> first != null;</p>
+@param mapped #true to write through the file mapped in memory (the file is cut after the representation),
+#false to write through the channel
+@return Answer the position in #channel after the representation
+	 */
+	public static long export(Node first, byte format, FileChannel channel, boolean mapped) throws IOException {
+		assert first != null;
+		ChannelAppendable out = new ChannelAppendable(channel, mapped);
+		try {
+			switch (format) {
+			case HTML:
+				first.printHTMLOn(out);
+				break;
+			case XML:
+				first.printXMLOn(out);
+				break;
+			default:
+				first.printOn(out);
+			};
+		} catch (Throwable exc) {
+			closeAfter(exc, out);
+			throw exc;
+		}
+		out.close();
+		return out.position();
+	}
+
+	/**
+	 * Cierra tras un error sin ocultarlo: el error al cerrar se añade como suprimido
+	 * @param failure error original
+	 */
+	private static void closeAfter(Throwable failure, Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException exc) {
+			failure.addSuppressed(exc);
+		};
+	}
+}
@@ -0,0 +1,84 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+A <em>TopologyGenerator</em> builds large token rings for load tests: a given number of
+workstations ("ws0", "ws1", ...), printers ("pr0", ...) and plain nodes ("n0", ...), in an order
+shuffled with a seeded random generator, so the same seed always gives the same token ring.
+ */
+public class TopologyGenerator {
+	/**
+    Holds the enclosing instance shared by all generated workstations and printers.
+	 */
+	private static final Node outer_ = new Node();
+
+	/**
+Return a <em>Network</em> with #workstations workstations, #printers printers and #nodes plain nodes,
+laid out on the token ring in the random order given by #seed.
+<p><strong>Precondition:</strong> workstations > 0 & printers > 0 & nodes >= 0;</p>
+<p><strong>Postcondition:</strong>result.consistentNetwork();</p>
+	 */
+	public static Network generate(long seed, int workstations, int printers, int nodes) {
+		assert (workstations > 0) & (printers > 0) & (nodes >= 0);
+		List<Node> ring = new ArrayList<Node>(workstations + printers + nodes);
+		for (int i = 0; i < workstations; i++) {
+			ring.add(outer_.new Workstation(workstationName(i)));
+		}
+		for (int i = 0; i < printers; i++) {
+			ring.add(outer_.new Printer(printerName(i)));
+		}
+		for (int i = 0; i < nodes; i++) {
+			ring.add(new Node(nodeName(i)));
+		}
+		Collections.shuffle(ring, new Random(seed));
+		Network network = Network.fromNodes(ring);
+		network.index();
+		return network;
+	}
+
+	/**
+	 * @return nombre de la workstation i-ésima generada
+	 */
+	public static String workstationName(int i) {
+		return "ws" + i;
+	}
+
+	/**
+	 * @return nombre de la impresora i-ésima generada
+	 */
+	public static String printerName(int i) {
+		return "pr" + i;
+	}
+
+	/**
+	 * @return nombre del nodo i-ésimo generado
+	 */
+	public static String nodeName(int i) {
+		return "n" + i;
+	}
+}
@@ -0,0 +1,130 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+A <em>TopologyLoader</em> builds a <em>Network</em> from the XML or HTML representation written by
+{@link Node#printXMLOn(Appendable)} and {@link Node#printHTMLOn(Appendable)}.
+The representation is read line by line in a single pass; only the nodes are kept in memory.
+ */
+public class TopologyLoader {
+	/**
+    Holds the enclosing instance shared by all loaded workstations and printers,
+    instead of one throwaway Node per loaded node.
+	 */
+	private static final Node outer_ = new Node();
+
+	/**
+Return the <em>Network</em> described by the XML or HTML representation in #file (UTF-8).
+	 */
+	public static Network load(Path file) throws IOException {
+		BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+		try {
+			return load(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+Return the <em>Network</em> described by the XML or HTML representation read from #in.
+Lines that are not shaped like a node (headers, "&lt;LI&gt;...&lt;/LI&gt;") are skipped. The token ring holds
+the nodes in the order they are read.
+@throws IOException when a line shaped like a node does not describe one, or a node name repeats;
+the message gives the line number
+	 */
+	public static Network load(Reader in) throws IOException {
+		BufferedReader lines = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in, 64 * 1024);
+		List<Node> nodes = new ArrayList<Node>();
+		HashSet<String> names = new HashSet<String>();
+		String line;
+		int number = 0;
+		while ((line = lines.readLine()) != null) {
+			number++;
+			Node node = parseLine(line.trim(), number);
+			if (node == null) {continue;};
+			if (! names.add(node.name_)) {
+				throw new IOException("Line " + number + ": node name already used: " + node.name_);
+			};
+			nodes.add(node);
+		}
+		return Network.fromNodes(nodes);
+	}
+
+	/**
+	 * Reconoce un nodo en una línea del formato XML ("Printer Andy [Printer]")
+	 * o del formato HTML ("&lt;LI&gt; &lt;printer&gt;Andy&lt;/printer&gt; &lt;/LI&gt;")
+	 * @param line línea sin espacios al principio ni al final
+	 * @param number número de la línea, para el mensaje de error
+	 * @return el nodo descrito o null si la línea no tiene forma de nodo
+	 */
+	private static Node parseLine(String line, int number) throws IOException {
+		Node node;
+		if (line.startsWith("<LI> <") && line.endsWith(" </LI>")) {
+			node = parseHTML(line.substring(5, line.length() - 6));
+		} else if (line.endsWith("]")) {
+			node = parseXML(line);
+		} else {
+			return null;
+		}
+		if (node == null) {throw new IOException("Line " + number + ": not a node: " + line);};
+		return node;
+	}
+
+	private static Node parseXML(String line) {
+		if (line.startsWith("Workstation ") && line.endsWith(" [Workstation]")) {
+			return outer_.new Workstation(line.substring(12, line.length() - 14));
+		} else if (line.startsWith("Printer ") && line.endsWith(" [Printer]")) {
+			return outer_.new Printer(line.substring(8, line.length() - 10));
+		} else if (line.startsWith("Bridge ") && line.endsWith(" [Bridge]")) {
+			return outer_.new Bridge(line.substring(7, line.length() - 9));
+		} else if (line.startsWith("Node ") && line.endsWith(" [Node]")) {
+			return new Node(line.substring(5, line.length() - 7));
+		} else {
+			return null;
+		}
+	}
+
+	private static Node parseHTML(String element) {
+		if (element.startsWith("<workstation>") && element.endsWith("</workstation>")) {
+			return outer_.new Workstation(element.substring(13, element.length() - 14));
+		} else if (element.startsWith("<printer>") && element.endsWith("</printer>")) {
+			return outer_.new Printer(element.substring(9, element.length() - 10));
+		} else if (element.startsWith("<bridge>") && element.endsWith("</bridge>")) {
+			return outer_.new Bridge(element.substring(8, element.length() - 9));
+		} else if (element.startsWith("<node>") && element.endsWith("</node>")) {
+			return new Node(element.substring(6, element.length() - 7));
+		} else {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+A <em>TopologySnapshot</em> is a token ring stored in a compact, versioned binary file:
+<pre>
+    int magic 'LANS', int format version, int node count n, int size of the name bytes
+    int[n]   next: position of the next node on the token ring
+    int[n+1] offsets of the UTF-8 encoded names in the name bytes
+    byte[n]  type: NodeIndex.NODE, WORKSTATION, PRINTER or BRIDGE
+    byte[]   name bytes
+</pre>
+All values are little endian. {@link #map(Path)} maps the file in memory, checks once that every
+next position and name offset is within bounds, and decodes nodes only when they are asked for, so
+opening even a very large snapshot costs little more than the I/O. A single mapping holds at most
+2GB, so bigger snapshots are refused by {@link #save(NodeIndex, Path)} and {@link #map(Path)}.
+ */
+public class TopologySnapshot {
+	public static final int MAGIC = 0x534E414C; // "LANS" in little endian
+	public static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+
+	private final ByteBuffer bytes_;
+	private final IntBuffer next_, offsets_;
+	private final int size_, typesStart_, namesStart_;
+
+	private TopologySnapshot(ByteBuffer bytes) throws IOException {
+		bytes_ = bytes.order(ByteOrder.LITTLE_ENDIAN);
+		if ((bytes_.limit() < HEADER_SIZE) || (bytes_.getInt(0) != MAGIC)) {
+			throw new IOException("Not a LAN topology snapshot");
+		};
+		if (bytes_.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Unsupported LAN topology snapshot version " + bytes_.getInt(4));
+		};
+		size_ = bytes_.getInt(8);
+		int nameBytes = bytes_.getInt(12);
+		if ((size_ < 0) || (nameBytes < 0)) {
+			throw new IOException("Corrupt LAN topology snapshot");
+		};
+		//in long, so corrupt counts cannot overflow
+		long typesStart = HEADER_SIZE + 4L * size_ + 4L * (size_ + 1L);
+		long end = typesStart + size_ + nameBytes;
+		if (bytes_.limit() != end) {
+			throw new IOException("Truncated LAN topology snapshot");
+		};
+		typesStart_ = (int) typesStart;
+		namesStart_ = typesStart_ + size_;
+		next_ = slice(HEADER_SIZE, size_).asIntBuffer();
+		offsets_ = slice(HEADER_SIZE + 4 * size_, size_ + 1).asIntBuffer();
+		verify(nameBytes);
+	}
+
+	/**
+	 * Comprueba que las posiciones siguientes y los offsets de los nombres están dentro de sus límites
+	 * @param nameBytes tamaño de los bytes de los nombres
+	 */
+	private void verify(int nameBytes) throws IOException {
+		for (int i = 0; i < size_; i++) {
+			int next = next_.get(i);
+			if ((next < 0) || (next >= size_)) {
+				throw new IOException("Corrupt LAN topology snapshot");
+			};
+		}
+		int previous = 0;
+		for (int i = 0; i <= size_; i++) {
+			int offset = offsets_.get(i);
+			if ((offset < previous) || (offset > nameBytes) || ((i == 0) && (offset != 0))) {
+				throw new IOException("Corrupt LAN topology snapshot");
+			};
+			previous = offset;
+		}
+		if (previous != nameBytes) {
+			throw new IOException("Corrupt LAN topology snapshot");
+		};
+	}
+
+	private ByteBuffer slice(int start, int ints) {
+		ByteBuffer dup = bytes_.duplicate();
+		dup.position(start);
+		dup.limit(start + 4 * ints);
+		return dup.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+Write the token ring #ring on #file, replacing its contents. The names are encoded straight into the
+write buffer, so saving needs no memory in proportion to the token ring.
+	 */
+	public static void save(NodeIndex ring, Path file) throws IOException {
+		int size = ring.size();
+		long nameBytes = 0;
+		for (int i = 0; i < size; i++) {
+			nameBytes += TextView.utf8Length(ring.nodeAt(i).name_);
+		}
+		if (HEADER_SIZE + 9L * size + 4L + nameBytes > Integer.MAX_VALUE) {
+			throw new IOException("Token ring too large for a LAN topology snapshot");
+		};
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer buf = ByteBuffer.allocateDirect(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+			buf.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt((int) nameBytes);
+			for (int i = 0; i < size; i++) {
+				buf = room(channel, buf, 4);
+				buf.putInt(ring.nextPosition(i));
+			}
+			int offset = 0;
+			for (int i = 0; i <= size; i++) {
+				buf = room(channel, buf, 4);
+				buf.putInt(offset);
+				if (i < size) {offset += (int) TextView.utf8Length(ring.nodeAt(i).name_);};
+			}
+			for (int i = 0; i < size; i++) {
+				buf = room(channel, buf, 1);
+				buf.put(NodeIndex.typeOf(ring.nodeAt(i)));
+			}
+			CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+			for (int i = 0; i < size; i++) {
+				CharBuffer name = CharBuffer.wrap(ring.nodeAt(i).name_);
+				CoderResult result;
+				while ((result = encoder.encode(name, buf, true)).isOverflow()) {
+					write(channel, buf);
+				}
+				//a name that is not valid UTF-16 would not match the offsets written above
+				if (result.isError()) {result.throwException();};
+				encoder.reset();
+			}
+			write(channel, buf);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Escribe el buffer en el fichero cuando no le queda sitio para el número de bytes indicado
+	 * @return el buffer, vacío si se ha escrito
+	 */
+	private static ByteBuffer room(FileChannel channel, ByteBuffer buf, int bytes) throws IOException {
+		if (buf.remaining() < bytes) {write(channel, buf);};
+		return buf;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+Map the snapshot in #file in memory. Nodes are decoded when they are asked for.
+	 */
+	public static TopologySnapshot map(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("LAN topology snapshot too large to map: " + channel.size() + " bytes");
+			};
+			//the mapping stays valid after the channel is closed
+			return new TopologySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return número de nodos del token ring
+	 */
+	public int size() {
+		return size_;
+	}
+
+	/**
+	 * @return posición del nodo siguiente al de la posición indicada
+	 */
+	public int next(int pos) {
+		return next_.get(pos);
+	}
+
+	/**
+	 * @return tipo del nodo (NodeIndex.NODE, WORKSTATION, PRINTER o BRIDGE)
+	 */
+	public byte typeOf(int pos) {
+		return bytes_.get(typesStart_ + pos);
+	}
+
+	/**
+	 * Decodifica el nombre del nodo de la posición indicada
+	 */
+	public String nameOf(int pos) {
+		int start = offsets_.get(pos), end = offsets_.get(pos + 1);
+		byte[] name = new byte[end - start];
+		ByteBuffer dup = bytes_.duplicate();
+		dup.position(namesStart_ + start);
+		dup.get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Crea el nodo de la posición indicada
+	 */
+	public Node nodeAt(int pos, Node outer) {
+		switch (typeOf(pos)) {
+		case NodeIndex.WORKSTATION:
+			return outer.new Workstation(nameOf(pos));
+		case NodeIndex.PRINTER:
+			return outer.new Printer(nameOf(pos));
+		case NodeIndex.BRIDGE:
+			return outer.new Bridge(nameOf(pos));
+		default:
+			return new Node(nameOf(pos));
+		}
+	}
+
+	/**
+	 * Copia el token ring a la representación compacta, sin crear objetos Node
+	 */
+	public CompactRing toCompactRing() {
+		CompactRing ring = new CompactRing(size_);
+		for (int i = 0; i < size_; i++) {
+			ring.append(nameOf(i), typeOf(i));
+		}
+		for (int i = 0; i < size_; i++) {
+			ring.link(i, next(i));
+		}
+		return ring;
+	}
+
+	/**
+Return a <em>Network</em> holding the token ring of the snapshot, starting at position 0 and
+following the next positions. Unlike the rest of the snapshot this is not lazy: every node of the
+token ring is decoded and created. Callers that only walk or look up part of a large token ring
+should use {@link #next(int)}, {@link #typeOf(int)} and {@link #nameOf(int)} on the mapping instead,
+as <em>SegmentServer</em> does, or {@link #toCompactRing()} to avoid the <em>Node</em> objects.
+	 */
+	public Network toNetwork() {
+		Node outer = new Node();
+		BitSet visited = new BitSet(size_);
+		List<Node> ring = new ArrayList<Node>(size_);
+		int pos = 0;
+		for (int i = 0; (i < size_) && (! visited.get(pos)); i++) {
+			visited.set(pos);
+			ring.add(nodeAt(pos, outer));
+			pos = next(pos);
+		}
+		return Network.fromNodes(ring);
+	}
+}
@@ -0,0 +1,339 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+An <em>AccountingLedger</em> counts the jobs and the bytes printed per author, per printer and
+per requesting workstation. Counters are <em>LongAdder</em>s, so concurrent deliveries do not
+contend on them; reading a counter sums its cells and is meant for queries and snapshots only.
+Accounts are looked up by the contents of the name, so recording an author given as a view on the
+document copies the name only the first time it is seen. Bytes are the UTF-8 bytes of the document.
+<p>A {@link #snapshot()} is a consistent enough copy of all counters, sorted per name; it can be
+exported as text, also periodically with {@link #exportEvery(long, Writer)}.</p>
+ */
+public class AccountingLedger {
+	/**
+	 * Dimensiones por las que se cuenta
+	 */
+	public static final byte AUTHOR = 0, PRINTER = 1, WORKSTATION = 2;
+
+	private static final String[] DIMENSION_NAMES = {"author", "printer", "workstation"};
+
+	/**
+    Holds the counters per name, one map per dimension.
+	 */
+	private final List<ConcurrentHashMap<Name, Account>> accounts_;
+	private volatile ScheduledExecutorService exporter_;
+
+	/**
+    Holds one reusable key per thread to look accounts up without copying the name.
+	 */
+	private static final ThreadLocal<Name> probe_ = new ThreadLocal<Name>() {
+		protected Name initialValue() {
+			return new Name();
+		}
+	};
+
+	public AccountingLedger() {
+		accounts_ = new ArrayList<ConcurrentHashMap<Name, Account>>(DIMENSION_NAMES.length);
+		for (int i = 0; i < DIMENSION_NAMES.length; i++) {
+			accounts_.add(new ConcurrentHashMap<Name, Account>());
+		}
+	}
+
+	/**
+	 * Registra un trabajo impreso
+	 * @param author autor del documento
+	 * @param printer nombre de la impresora
+	 * @param workstation nombre de la workstation que pidió imprimir
+	 * @param bytes tamaño del documento en bytes UTF-8
+	 */
+	public void record(CharSequence author, String printer, String workstation, long bytes) {
+		account(AUTHOR, author).add(bytes);
+		account(PRINTER, printer).add(bytes);
+		account(WORKSTATION, workstation).add(bytes);
+	}
+
+	/**
+	 * @return la cuenta del nombre, creándola (con una copia del nombre) si no existe
+	 */
+	private Account account(byte dimension, CharSequence name) {
+		ConcurrentHashMap<Name, Account> accounts = accounts_.get(dimension);
+		Account account = find(accounts, name);
+		if (account == null) {
+			Account created = new Account();
+			account = accounts.putIfAbsent(new Name().set(name.toString()), created);
+			if (account == null) {account = created;};
+		};
+		return account;
+	}
+
+	/**
+	 * @return la cuenta del nombre, o null si no existe; no copia el nombre
+	 */
+	private static Account find(ConcurrentHashMap<Name, Account> accounts, CharSequence name) {
+		Name probe = probe_.get().set(name);
+		try {
+			return accounts.get(probe);
+		} finally {
+			probe.set("");
+		}
+	}
+
+	/**
+	 * @param dimension AUTHOR, PRINTER o WORKSTATION
+	 * @param name nombre del autor, impresora o workstation
+	 * @return número de trabajos impresos
+	 */
+	public long jobs(byte dimension, String name) {
+		Account account = find(accounts_.get(dimension), name);
+		return (account == null) ? 0 : account.jobs();
+	}
+
+	/**
+	 * @param dimension AUTHOR, PRINTER o WORKSTATION
+	 * @param name nombre del autor, impresora o workstation
+	 * @return número de bytes impresos
+	 */
+	public long bytes(byte dimension, String name) {
+		Account account = find(accounts_.get(dimension), name);
+		return (account == null) ? 0 : account.bytes();
+	}
+
+	/**
+	 * @return copia de todos los contadores en este momento
+	 */
+	public Snapshot snapshot() {
+		Snapshot snapshot = new Snapshot(System.currentTimeMillis());
+		for (int d = 0; d < accounts_.size(); d++) {
+			for (Map.Entry<Name, Account> e : accounts_.get(d).entrySet()) {
+				long jobs = e.getValue().jobs();
+				if (jobs > 0) {snapshot.counts_.get(d).put(e.getKey().toString(), new long[] {jobs, e.getValue().bytes()});};
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Pone todos los contadores a cero; los trabajos que se registran a la vez cuentan antes o después
+	 * de ponerlos a cero, pero no se pierden
+	 */
+	public void reset() {
+		for (ConcurrentHashMap<Name, Account> accounts : accounts_) {
+			for (Account account : accounts.values()) {
+				account.reset();
+			}
+		}
+	}
+
+	/**
+	 * Exporta periódicamente una copia de los contadores en un hilo de fondo
+	 * @param periodMillis milisegundos entre dos exportaciones
+	 * @param out donde se escribe cada copia
+	 * @return tarea programada, para cancelarla
+	 */
+	public synchronized ScheduledFuture<?> exportEvery(long periodMillis, final Writer out) {
+		assert periodMillis > 0;
+		if (exporter_ == null) {
+			exporter_ = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "AccountingLedger");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		};
+		return exporter_.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					snapshot().printOn(out);
+					out.flush();
+				} catch (IOException exc) {
+					// just ignore
+				};
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Detiene las exportaciones periódicas
+	 */
+	public synchronized void close() {
+		if (exporter_ != null) {
+			exporter_.shutdownNow();
+			exporter_ = null;
+		};
+	}
+
+	/**
+	 * Nombre que se compara por su contenido, sea cual sea el CharSequence que lo contiene.
+	 * Las claves de las cuentas guardan un String; la clave de búsqueda de cada hilo se reutiliza
+	 */
+	private static final class Name {
+		private CharSequence text_ = "";
+		private int hash_;
+
+		Name set(CharSequence text) {
+			int hash = 0;
+			for (int i = 0; i < text.length(); i++) {
+				hash = 31 * hash + text.charAt(i);
+			}
+			text_ = text;
+			hash_ = hash;
+			return this;
+		}
+
+		public int hashCode() {
+			return hash_;
+		}
+
+		public boolean equals(Object other) {
+			if (! (other instanceof Name)) {return false;};
+			CharSequence text = ((Name) other).text_;
+			if ((hash_ != ((Name) other).hash_) || (text_.length() != text.length())) {return false;};
+			for (int i = 0; i < text.length(); i++) {
+				if (text_.charAt(i) != text.charAt(i)) {return false;};
+			}
+			return true;
+		}
+
+		public String toString() {
+			return text_.toString();
+		}
+	}
+
+	/**
+	 * Contadores de trabajos y bytes de un autor, impresora o workstation.
+	 * Poner a cero solo guarda los totales de ese momento como base, así que nunca pierde lo que se suma a la vez
+	 */
+	private static class Account {
+		final LongAdder jobs_ = new LongAdder(), bytes_ = new LongAdder();
+		private long jobsBase_, bytesBase_;
+
+		void add(long bytes) {
+			jobs_.increment();
+			bytes_.add(bytes);
+		}
+
+		synchronized long jobs() {
+			return jobs_.sum() - jobsBase_;
+		}
+
+		synchronized long bytes() {
+			return bytes_.sum() - bytesBase_;
+		}
+
+		synchronized void reset() {
+			jobsBase_ = jobs_.sum();
+			bytesBase_ = bytes_.sum();
+		}
+	}
+
+	/**
+	 * Copia de los contadores del libro de cuentas en un instante
+	 */
+	public static class Snapshot {
+		private final long takenAt_;
+		private final List<TreeMap<String, long[]>> counts_;
+
+		Snapshot(long takenAt) {
+			takenAt_ = takenAt;
+			counts_ = new ArrayList<TreeMap<String, long[]>>(DIMENSION_NAMES.length);
+			for (int i = 0; i < DIMENSION_NAMES.length; i++) {
+				counts_.add(new TreeMap<String, long[]>());
+			}
+		}
+
+		/**
+		 * @return instante en el que se tomó la copia, en milisegundos desde 1970
+		 */
+		public long takenAt() {
+			return takenAt_;
+		}
+
+		/**
+		 * @param dimension AUTHOR, PRINTER o WORKSTATION
+		 * @return nombres con algún trabajo, ordenados
+		 */
+		public Iterable<String> names(byte dimension) {
+			return counts_.get(dimension).keySet();
+		}
+
+		public long jobs(byte dimension, String name) {
+			long[] count = counts_.get(dimension).get(name);
+			return (count == null) ? 0 : count[0];
+		}
+
+		public long bytes(byte dimension, String name) {
+			long[] count = counts_.get(dimension).get(name);
+			return (count == null) ? 0 : count[1];
+		}
+
+		/**
+		 * Escribe la copia como texto, una línea "dimensión,nombre,trabajos,bytes" por contador;
+		 * los nombres con comas, comillas o saltos de línea van entre comillas, con las comillas dobladas (CSV)
+		 * @param out donde se escribe
+		 */
+		public void printOn(Appendable out) throws IOException {
+			out.append("# accounting ").append(Long.toString(takenAt_)).append('\n');
+			for (int d = 0; d < counts_.size(); d++) {
+				for (Map.Entry<String, long[]> e : counts_.get(d).entrySet()) {
+					out.append(DIMENSION_NAMES[d]).append(',');
+					appendField(out, e.getKey());
+					out.append(',');
+					out.append(Long.toString(e.getValue()[0])).append(',').append(Long.toString(e.getValue()[1])).append('\n');
+				}
+			}
+		}
+
+		private static void appendField(Appendable out, String field) throws IOException {
+			boolean quoted = false;
+			for (int i = 0; (i < field.length()) && ! quoted; i++) {
+				char c = field.charAt(i);
+				quoted = (c == ',') || (c == '"') || (c == '\n') || (c == '\r');
+			}
+			if (! quoted) {
+				out.append(field);
+				return;
+			};
+			out.append('"');
+			for (int i = 0; i < field.length(); i++) {
+				char c = field.charAt(i);
+				if (c == '"') {out.append('"');};
+				out.append(c);
+			}
+			out.append('"');
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+An <em>AsyncReportWriter</em> collects report text in chunks and hands full chunks to a background
+thread, which writes them on the target <em>Writer</em> and flushes the target only when it has
+caught up. Writing a report therefore never waits for the target.
+<p>{@link #flush()} only checks that the writer is usable: text stays in the chunk being filled until
+the chunk is full, so reports that flush after every request are still written in large chunks.
+{@link #sync()} hands over the partly filled chunk and waits until all text written so far reached
+the target, and
+{@link #close()} does the same before closing the target. When the background thread falls behind
+by more than the queue capacity, writers either wait (BLOCK) or the chunk is dropped (DROP).</p>
+ */
+public class AsyncReportWriter extends Writer {
+	/**
+	 * Políticas cuando la cola de trozos pendientes está llena
+	 */
+	public static final byte BLOCK = 0, DROP = 1;
+
+	private final Writer target_;
+	private final byte policy_;
+	private final int chunkSize_;
+	/**
+    Holds the chunks waiting to be written, and the emptied chunks ready to be reused.
+	 */
+	private final ArrayBlockingQueue<Chunk> pending_, free_;
+	private final Thread drainer_;
+
+	/**
+    Holds the chunk being filled; guarded by #lock.
+	 */
+	private Chunk current_;
+	private boolean closed_;
+
+	/**
+    Counts the chunks handed over and written; guarded by #progress_.
+	 */
+	private final Object progress_ = new Object();
+	private long handedOver_, written_, droppedChars_;
+	private IOException failure_;
+	private boolean stopped_;
+
+	/**
+	 * @param target donde se escribe finalmente el informe
+	 * @param chunkSize número de caracteres por trozo
+	 * @param capacity número máximo de trozos pendientes de escribir
+	 * @param policy BLOCK o DROP, qué hacer cuando hay demasiados trozos pendientes
+	 */
+	public AsyncReportWriter(Writer target, int chunkSize, int capacity, byte policy) {
+		assert (chunkSize > 0) & (capacity > 0) & ((policy == BLOCK) | (policy == DROP));
+		target_ = target;
+		policy_ = policy;
+		chunkSize_ = chunkSize;
+		pending_ = new ArrayBlockingQueue<Chunk>(capacity);
+		free_ = new ArrayBlockingQueue<Chunk>(capacity + 1);
+		current_ = new Chunk(chunkSize);
+		closed_ = false;
+		drainer_ = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "AsyncReportWriter");
+		drainer_.setDaemon(true);
+		drainer_.start();
+	}
+
+	/**
+	 * Crea un writer asíncrono con trozos de 64K caracteres y hasta 16 trozos pendientes, que espera cuando se llena
+	 * @param target donde se escribe finalmente el informe
+	 */
+	public AsyncReportWriter(Writer target) {
+		this(target, 64 * 1024, 16, BLOCK);
+	}
+
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			while (len > 0) {
+				int n = Math.min(len, chunkSize_ - current_.length_);
+				System.arraycopy(cbuf, off, current_.chars_, current_.length_, n);
+				current_.length_ += n;
+				off += n;
+				len -= n;
+				if (current_.length_ == chunkSize_) {handOver();};
+			}
+		}
+	}
+
+	public void write(String str, int off, int len) throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			while (len > 0) {
+				int n = Math.min(len, chunkSize_ - current_.length_);
+				str.getChars(off, off + n, current_.chars_, current_.length_);
+				current_.length_ += n;
+				off += n;
+				len -= n;
+				if (current_.length_ == chunkSize_) {handOver();};
+			}
+		}
+	}
+
+	public void write(int c) throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			current_.chars_[current_.length_++] = (char) c;
+			if (current_.length_ == chunkSize_) {handOver();};
+		}
+	}
+
+	/**
+	 * No pasa el trozo a medio llenar al hilo de fondo, para escribir siempre en trozos grandes;
+	 * ver sync()
+	 */
+	public void flush() throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+		}
+	}
+
+	/**
+	 * Espera hasta que todo el texto escrito hasta ahora haya llegado al destino
+	 */
+	public void sync() throws IOException {
+		synchronized (lock) {
+			ensureOpen();
+			if (current_.length_ > 0) {handOver();};
+		}
+		awaitWritten();
+	}
+
+	/**
+	 * Espera hasta que el hilo de fondo haya escrito todos los trozos que se le han pasado
+	 */
+	private void awaitWritten() throws IOException {
+		synchronized (progress_) {
+			long target = handedOver_;
+			try {
+				while ((written_ < target) && (failure_ == null)) {
+					progress_.wait();
+				}
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			if (failure_ != null) {throw failure_;};
+		}
+	}
+
+	/**
+	 * Escribe todo el texto pendiente, detiene el hilo de fondo y cierra el destino
+	 */
+	public void close() throws IOException {
+		try {
+			//closing and handing over the last chunk at once, so no later write can slip in between
+			synchronized (lock) {
+				if (closed_) {return;};
+				closed_ = true;
+				if (current_.length_ > 0) {handOver();};
+			}
+			awaitWritten();
+		} finally {
+			stop();
+		}
+	}
+
+	/**
+	 * Detiene el hilo de fondo y cierra el destino, una sola vez
+	 */
+	private void stop() throws IOException {
+		synchronized (progress_) {
+			if (stopped_) {return;};
+			stopped_ = true;
+		}
+		drainer_.interrupt();
+		try {
+			drainer_.join();
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		target_.close();
+	}
+
+	/**
+	 * @return número de caracteres descartados con la política DROP
+	 */
+	public long droppedChars() {
+		synchronized (progress_) {
+			return droppedChars_;
+		}
+	}
+
+	/**
+	 * Pasa el trozo actual a la cola de pendientes y empieza uno nuevo; se llama con #lock
+	 */
+	private void handOver() throws IOException {
+		Chunk full = current_;
+		Chunk next = free_.poll();
+		current_ = (next == null) ? new Chunk(chunkSize_) : next;
+		boolean queued;
+		if (policy_ == BLOCK) {
+			try {
+				pending_.put(full);
+				queued = true;
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		} else {
+			queued = pending_.offer(full);
+		};
+		synchronized (progress_) {
+			if (queued) {
+				handedOver_++;
+			} else {
+				droppedChars_ += full.length_;
+				full.length_ = 0;
+				free_.offer(full);
+			};
+		}
+	}
+
+	/**
+	 * Bucle del hilo de fondo: escribe los trozos pendientes y vacía el destino cuando se pone al día
+	 */
+	private void drain() {
+		while (true) {
+			Chunk chunk;
+			try {
+				chunk = pending_.take();
+			} catch (InterruptedException exc) {
+				//only stop() interrupts, once every chunk handed over has been written
+				return;
+			}
+			try {
+				target_.write(chunk.chars_, 0, chunk.length_);
+				if (pending_.isEmpty()) {target_.flush();};
+			} catch (IOException exc) {
+				synchronized (progress_) {
+					if (failure_ == null) {failure_ = exc;};
+				}
+			}
+			chunk.length_ = 0;
+			free_.offer(chunk);
+			synchronized (progress_) {
+				written_++;
+				progress_.notifyAll();
+			}
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed_) {throw new IOException("AsyncReportWriter is closed");};
+		synchronized (progress_) {
+			if (failure_ != null) {throw failure_;};
+		}
+	}
+
+	/**
+	 * Trozo de texto: un array de caracteres y cuántos están ocupados
+	 */
+	private static class Chunk {
+		final char[] chars_;
+		int length_;
+
+		Chunk(int size) {
+			chars_ = new char[size];
+			length_ = 0;
+		}
+	}
+}
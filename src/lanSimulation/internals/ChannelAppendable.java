@@ -0,0 +1,236 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+A <em>ChannelAppendable</em> encodes appended text as UTF-8, exactly once, straight into a byte
+buffer that is either a pooled direct buffer written to a <em>FileChannel</em> whenever it is full,
+or a window of the file mapped in memory, remapped further on when it is full.
+Lets the renderings of very large token rings be written at disk speed, without building them as
+a String first. {@link #close()} writes what is left and, for a mapped file, cuts it to size.
+<p>The first window is as large as a direct buffer and every next one as large as what has been
+written so far, up to WINDOW_SIZE, so the file never grows much past the rendering before it is cut.
+Windows are unmapped as soon as they are full where the JVM allows it.</p>
+<p>In both modes the bytes are left to the operating system, as with any write, and nothing waits for
+the disk; call <code>FileChannel.force</code> after {@link #close()} when the file must survive a crash.</p>
+ */
+public class ChannelAppendable implements Appendable, Closeable {
+	/**
+	 * Tamaño de los buffers directos y de las ventanas proyectadas en memoria
+	 */
+	public static final int BUFFER_SIZE = 256 * 1024, WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/**
+    Holds the direct buffers that are not in use; allocating direct buffers is expensive.
+	 */
+	private static final ConcurrentLinkedQueue<ByteBuffer> pool_ = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/**
+    Holds sun.misc.Unsafe and its invokeCleaner method, used to unmap a window; both null when the JVM
+    has no invokeCleaner (Java 8), and then a window is unmapped when it is garbage collected.
+	 */
+	private static final Object unsafe_;
+	private static final Method invokeCleaner_;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		} catch (Exception exc) {
+			invokeCleaner = null;
+		};
+		unsafe_ = unsafe;
+		invokeCleaner_ = invokeCleaner;
+	}
+
+	private final FileChannel channel_;
+	private final boolean mapped_;
+	private final CharsetEncoder encoder_;
+	private final CharBuffer chars_;
+	private ByteBuffer bytes_;
+	/**
+    Holds the position in the file where #bytes_ starts, and where the first byte was written.
+	 */
+	private long windowStart_;
+	private final long origin_;
+
+	/**
+	 * @param channel fichero donde se escribe, a partir de su posición actual
+	 * @param mapped true para escribir a través de ventanas del fichero proyectadas en memoria
+	 */
+	public ChannelAppendable(FileChannel channel, boolean mapped) throws IOException {
+		channel_ = channel;
+		mapped_ = mapped;
+		encoder_ = StandardCharsets.UTF_8.newEncoder();
+		chars_ = CharBuffer.allocate(8 * 1024);
+		windowStart_ = channel.position();
+		origin_ = windowStart_;
+		if (mapped) {
+			bytes_ = channel.map(FileChannel.MapMode.READ_WRITE, windowStart_, BUFFER_SIZE);
+		} else {
+			ByteBuffer pooled = pool_.poll();
+			bytes_ = (pooled == null) ? ByteBuffer.allocateDirect(BUFFER_SIZE) : pooled;
+			bytes_.clear();
+		};
+	}
+
+	public Appendable append(CharSequence csq) throws IOException {
+		return append(csq, 0, csq.length());
+	}
+
+	public Appendable append(CharSequence csq, int start, int end) throws IOException {
+		while (start < end) {
+			int n = Math.min(end - start, chars_.remaining());
+			if (csq instanceof String) {
+				((String) csq).getChars(start, start + n, chars_.array(), chars_.arrayOffset() + chars_.position());
+				chars_.position(chars_.position() + n);
+			} else {
+				for (int i = start; i < start + n; i++) {
+					chars_.put(csq.charAt(i));
+				}
+			};
+			start += n;
+			if (! chars_.hasRemaining()) {encode(false);};
+		}
+		return this;
+	}
+
+	public Appendable append(char c) throws IOException {
+		chars_.put(c);
+		if (! chars_.hasRemaining()) {encode(false);};
+		return this;
+	}
+
+	/**
+	 * Codifica el texto acumulado en el buffer de bytes, vaciándolo cuando se llena
+	 * @param endOfInput true cuando no se va a añadir más texto
+	 */
+	private void encode(boolean endOfInput) throws IOException {
+		chars_.flip();
+		while (true) {
+			CoderResult result = encoder_.encode(chars_, bytes_, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			};
+		}
+		//an unpaired surrogate at the end stays for the next call
+		chars_.compact();
+	}
+
+	/**
+	 * Escribe en el fichero el buffer lleno, o proyecta la siguiente ventana del fichero
+	 */
+	private void drain() throws IOException {
+		if (mapped_) {
+			ByteBuffer full = bytes_;
+			windowStart_ += full.position();
+			long size = Math.min(WINDOW_SIZE, Math.max(BUFFER_SIZE, windowStart_ - origin_));
+			bytes_ = channel_.map(FileChannel.MapMode.READ_WRITE, windowStart_, size);
+			unmap(full);
+		} else {
+			bytes_.flip();
+			windowStart_ += bytes_.remaining();
+			while (bytes_.hasRemaining()) {
+				channel_.write(bytes_);
+			}
+			bytes_.clear();
+		};
+	}
+
+	/**
+	 * @return posición en el fichero tras los bytes escritos hasta ahora (sin contar el texto aún no codificado)
+	 */
+	public long position() {
+		return windowStart_ + ((bytes_ == null) ? 0 : bytes_.position());
+	}
+
+	/**
+	 * Escribe el texto pendiente y devuelve el buffer al pool; no cierra el fichero.
+	 * Si falla la escritura, el fichero proyectado se corta igualmente tras lo escrito, y un error
+	 * al cortarlo se añade como suprimido al error original
+	 */
+	public void close() throws IOException {
+		if (bytes_ == null) {return;};
+		try {
+			encode(true);
+			encoder_.flush(bytes_);
+			if (! mapped_) {drain();};
+		} catch (Throwable exc) {
+			try {
+				release();
+			} catch (IOException second) {
+				exc.addSuppressed(second);
+			};
+			throw exc;
+		}
+		release();
+	}
+
+	/**
+	 * Suelta el buffer o la ventana actual y, para un fichero proyectado, lo corta tras lo escrito
+	 */
+	private void release() throws IOException {
+		ByteBuffer bytes = bytes_;
+		long end = position();
+		bytes_ = null;
+		windowStart_ = end;
+		if (mapped_) {
+			unmap(bytes);
+			channel_.truncate(end);
+			channel_.position(end);
+		} else {
+			pool_.offer(bytes);
+		};
+	}
+
+	/**
+	 * Deshace la proyección de una ventana que ya no se usa; sin invokeCleaner la deshace el recolector
+	 * @param window ventana que nadie vuelve a tocar
+	 */
+	private static void unmap(ByteBuffer window) {
+		if (invokeCleaner_ == null) {return;};
+		try {
+			invokeCleaner_.invoke(unsafe_, window);
+		} catch (Exception exc) {
+			// just ignore
+		};
+	}
+}
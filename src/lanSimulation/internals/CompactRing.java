@@ -0,0 +1,237 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+A <em>CompactRing</em> holds a token ring in parallel primitive arrays instead of a graph of
+<em>Node</em> objects: for every node the index of the next node, a type byte and the id of its
+name in a table of distinct names. Routing, printing and consistency checks run directly on the
+arrays, which keeps very large token rings small and avoids chasing pointers.
+{@link lanSimulation.CompactNetwork} handles requests on it; the FootprintComparison of the benchmarks
+measures its heap against the object graph of a Network.
+ */
+public class CompactRing {
+	private int[] next_;
+	private byte[] type_;
+	private int[] nameId_;
+	private int size_;
+	/**
+    Holds the distinct names and the position of their first node, indexed by name id, and the reverse mapping.
+	 */
+	private String[] names_;
+	private int[] firstPosition_;
+	private int nameCount_;
+	/**
+    Open addressing hash table from name to (name id + 1), 0 marks a free slot; avoids boxing every id.
+	 */
+	private int[] table_;
+
+	/**
+	 * Crea un token ring compacto vacío
+	 * @param capacity número de nodos previsto
+	 */
+	public CompactRing(int capacity) {
+		capacity = Math.max(capacity, 4);
+		next_ = new int[capacity];
+		type_ = new byte[capacity];
+		nameId_ = new int[capacity];
+		names_ = new String[capacity];
+		firstPosition_ = new int[capacity];
+		table_ = new int[Integer.highestOneBit(capacity) * 4];
+		nameCount_ = 0;
+		size_ = 0;
+	}
+
+	/**
+	 * Copia una versión del token ring de objetos a la representación compacta
+	 * @param ring versión del token ring
+	 * @return token ring compacto con los mismos nodos en el mismo orden
+	 */
+	public static CompactRing from(NodeIndex ring) {
+		CompactRing compact = new CompactRing(ring.size());
+		for (int i = 0; i < ring.size(); i++) {
+			compact.append(ring.nodeAt(i).name_, NodeIndex.typeOf(ring.nodeAt(i)));
+		}
+		return compact;
+	}
+
+	/**
+	 * Añade un nodo al final del token ring (antes del primero)
+	 * @param name nombre del nodo
+	 * @param type NodeIndex.NODE, WORKSTATION, PRINTER o BRIDGE
+	 * @return posición del nodo añadido
+	 */
+	public int append(String name, byte type) {
+		if (size_ == next_.length) {
+			int capacity = size_ * 2;
+			next_ = Arrays.copyOf(next_, capacity);
+			type_ = Arrays.copyOf(type_, capacity);
+			nameId_ = Arrays.copyOf(nameId_, capacity);
+		};
+		int pos = size_++;
+		type_[pos] = type;
+		nameId_[pos] = intern(name, pos);
+		next_[pos] = 0;
+		if (pos > 0) {next_[pos - 1] = pos;};
+		return pos;
+	}
+
+	/**
+	 * @return id del nombre en la tabla de nombres, añadiéndolo (con la posición indicada) si no estaba
+	 */
+	private int intern(String name, int pos) {
+		int id = idOf(name);
+		if (id >= 0) {return id;};
+		id = nameCount_++;
+		if (id == names_.length) {
+			names_ = Arrays.copyOf(names_, id * 2);
+			firstPosition_ = Arrays.copyOf(firstPosition_, id * 2);
+		};
+		names_[id] = name;
+		firstPosition_[id] = pos;
+		if (nameCount_ * 2 > table_.length) {
+			rehash(table_.length * 2);
+		} else {
+			table_[slotOf(name)] = id + 1;
+		};
+		return id;
+	}
+
+	/**
+	 * @return id del nombre en la tabla de nombres o -1 si no está
+	 */
+	private int idOf(String name) {
+		return table_[slotOf(name)] - 1;
+	}
+
+	/**
+	 * @return posición de la tabla hash que ocupa el nombre, o la posición libre donde iría
+	 */
+	private int slotOf(String name) {
+		int mask = table_.length - 1;
+		int slot = (name.hashCode() * 0x9E3779B9) & mask;
+		while ((table_[slot] != 0) && ! names_[table_[slot] - 1].equals(name)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		table_ = new int[capacity];
+		for (int id = 0; id < nameCount_; id++) {
+			table_[slotOf(names_[id])] = id + 1;
+		}
+	}
+
+	/**
+	 * Enlaza un nodo con otro como siguiente en el token ring
+	 */
+	public void link(int pos, int next) {
+		next_[pos] = next;
+	}
+
+	public int size() {
+		return size_;
+	}
+
+	public int next(int pos) {
+		return next_[pos];
+	}
+
+	public byte typeOf(int pos) {
+		return type_[pos];
+	}
+
+	public String nameOf(int pos) {
+		return names_[nameId_[pos]];
+	}
+
+	/**
+	 * @param name nombre del nodo buscado
+	 * @return posición del primer nodo con ese nombre o -1 si no está
+	 */
+	public int positionOf(String name) {
+		int id = idOf(name);
+		return (id < 0) ? -1 : firstPosition_[id];
+	}
+
+	/**
+	 * Recorre el token ring desde el origen como lo haría un paquete hacia el destino
+	 * @param origin posición del nodo origen
+	 * @param destination posición del nodo destino
+	 * @param report donde se informa de cada salto, puede ser null
+	 * @return posición del nodo donde se detiene el paquete (el destino, o el origen si no lo encontró)
+	 */
+	public int route(int origin, int destination, ReportSink report) {
+		int pos = origin;
+		do {
+			if (report != null) {report.hop(names_[nameId_[pos]]);};
+			pos = next_[pos];
+		} while ((pos != destination) && (pos != origin));
+		return pos;
+	}
+
+	/**
+	 * Answer whether the compact token ring is consistent, as {@link lanSimulation.Network#consistentNetwork()}:
+	 * circular from position 0, without repeated names, with at least one printer and one workstation.
+	 */
+	public boolean isConsistent() {
+		if (size_ == 0) {return false;};
+		boolean[] encountered = new boolean[nameCount_];
+		int printers = 0, workstations = 0, pos = 0;
+		while (! encountered[nameId_[pos]]) {
+			encountered[nameId_[pos]] = true;
+			if (type_[pos] == NodeIndex.WORKSTATION) {workstations++;};
+			if (type_[pos] == NodeIndex.PRINTER) {printers++;};
+			pos = next_[pos];
+		}
+		return (pos == 0) && (printers > 0) && (workstations > 0);
+	}
+
+	/**
+	 * Escribe la representación textual del token ring, la misma que Node.printOn; nada si está vacío
+	 * @param out donde se escribe
+	 */
+	public void printOn(Appendable out) throws IOException {
+		if (size_ == 0) {return;};
+		int pos = 0;
+		do {
+			switch (type_[pos]) {
+			case NodeIndex.WORKSTATION:
+				out.append("Workstation ").append(nameOf(pos)).append(" [Workstation]");
+				break;
+			case NodeIndex.PRINTER:
+				out.append("Printer ").append(nameOf(pos)).append(" [Printer]");
+				break;
+			case NodeIndex.BRIDGE:
+				out.append("Bridge ").append(nameOf(pos)).append(" [Bridge]");
+				break;
+			default:
+				out.append("Node ").append(nameOf(pos)).append(" [Node]");
+			};
+			out.append(" -> ");
+			pos = next_[pos];
+		} while (pos != 0);
+		out.append(" ... ");
+	}
+}
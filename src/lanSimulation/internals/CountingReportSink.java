@@ -0,0 +1,90 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+/**
+A <em>CountingReportSink</em> only counts the events it receives; nothing is formatted.
+Not thread-safe: use one per thread.
+ */
+public class CountingReportSink implements ReportSink {
+	private long requests_, hops_, accepts_, deliveries_, failures_;
+
+	public void printRequested(String workstation, String document, String printer) {
+		requests_++;
+	}
+
+	public void broadcastRequested() {
+		requests_++;
+	}
+
+	public void hop(String node) {
+		hops_++;
+	}
+
+	public void broadcastAccepted(String node) {
+		accepts_++;
+	}
+
+	public void broadcastCompleted() {
+	}
+
+	public void accounting(CharSequence author, CharSequence title, boolean postscript) {
+		deliveries_++;
+	}
+
+	public void deliveryFailed(byte reason) {
+		failures_++;
+	}
+
+	/**
+	 * @return número de peticiones (de impresión y broadcast)
+	 */
+	public long requests() {
+		return requests_;
+	}
+
+	/**
+	 * @return número de veces que un nodo pasó un paquete
+	 */
+	public long hops() {
+		return hops_;
+	}
+
+	/**
+	 * @return número de veces que un nodo aceptó un paquete broadcast
+	 */
+	public long broadcastAccepts() {
+		return accepts_;
+	}
+
+	/**
+	 * @return número de trabajos entregados
+	 */
+	public long deliveries() {
+		return deliveries_;
+	}
+
+	/**
+	 * @return número de trabajos no entregados
+	 */
+	public long failures() {
+		return failures_;
+	}
+}
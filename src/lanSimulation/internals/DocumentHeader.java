@@ -0,0 +1,186 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+/**
+A <em>DocumentHeader</em> finds the author and the title of a document to print, for accounting.
+<ul>
+<li>A Postscript document starts with "!PS"; its author follows the first "author:" and its title the
+first "title:", each up to the next "." or the end of the document.</li>
+<li>For an ASCII document the author are characters 8 up to 16, and the title is "ASCII DOCUMENT".</li>
+</ul>
+The document is scanned once, and author and title are answered as views on the document, not as copies.
+<p>A header can be reused with {@link #parse(CharSequence)}; {@link #forThread()} answers one header per
+thread, so handling a print job allocates nothing. The views answered by a reused header change on the
+next parse, and {@link #clear()} lets go of the document once the job is handled, so an idle thread
+does not keep its last document alive.</p>
+ */
+public class DocumentHeader {
+	public static final String UNKNOWN_AUTHOR = "Unknown", UNTITLED = "Untitled", ASCII_TITLE = "ASCII DOCUMENT";
+
+	private static final String AUTHOR_KEY = "author:", TITLE_KEY = "title:";
+
+	private static final ThreadLocal<DocumentHeader> perThread_ = new ThreadLocal<DocumentHeader>() {
+		protected DocumentHeader initialValue() {
+			return new DocumentHeader();
+		}
+	};
+
+	private CharSequence document_;
+	private boolean postscript_;
+	/**
+    Holds the ranges of author and title in #document_; a start of -1 means the default applies.
+	 */
+	private int authorStart_, authorEnd_, titleStart_, titleEnd_;
+	private final TextView author_ = new TextView(""), title_ = new TextView("");
+
+	/**
+	 * Cabecera vacía, para reutilizarla con parse
+	 */
+	public DocumentHeader() {
+		parse("");
+	}
+
+	/**
+	 * Analiza la cabecera de un documento
+	 * @param document documento a imprimir
+	 */
+	public DocumentHeader(CharSequence document) {
+		parse(document);
+	}
+
+	/**
+	 * @return la cabecera reutilizable del hilo actual
+	 */
+	public static DocumentHeader forThread() {
+		return perThread_.get();
+	}
+
+	/**
+	 * Analiza la cabecera de otro documento, olvidando la anterior
+	 * @param document documento a imprimir
+	 * @return el propio receptor
+	 */
+	public DocumentHeader parse(CharSequence document) {
+		document_ = document;
+		postscript_ = startsWith(document, 0, "!PS");
+		authorStart_ = -1;
+		titleStart_ = -1;
+		if (postscript_) {
+			scanPostscript();
+		} else if (document.length() >= 16) {
+			authorStart_ = 8;
+			authorEnd_ = 16;
+		};
+		//views that are not answered drop the document too, see clear()
+		if (authorStart_ >= 0) {author_.set(document, authorStart_, authorEnd_);} else {author_.set("", 0, 0);};
+		if (titleStart_ >= 0) {title_.set(document, titleStart_, titleEnd_);} else {title_.set("", 0, 0);};
+		return this;
+	}
+
+	/**
+	 * Recorre el documento una sola vez buscando "author:", "title:" y el "." que termina a cada uno
+	 */
+	private void scanPostscript() {
+		int length = document_.length();
+		boolean authorOpen = false, titleOpen = false;
+		for (int i = 0; i < length; i++) {
+			char c = document_.charAt(i);
+			if (c == '.') {
+				if (authorOpen && (i >= authorStart_)) {authorEnd_ = i; authorOpen = false;};
+				if (titleOpen && (i >= titleStart_)) {titleEnd_ = i; titleOpen = false;};
+				if ((authorStart_ >= 0) && ! authorOpen && (titleStart_ >= 0) && ! titleOpen) {return;};
+			} else if ((c == 'a') && (authorStart_ < 0) && startsWith(document_, i, AUTHOR_KEY)) {
+				authorStart_ = i + AUTHOR_KEY.length();
+				authorOpen = true;
+			} else if ((c == 't') && (titleStart_ < 0) && startsWith(document_, i, TITLE_KEY)) {
+				titleStart_ = i + TITLE_KEY.length();
+				titleOpen = true;
+			};
+		}
+		if (authorOpen) {authorEnd_ = length;};
+		if (titleOpen) {titleEnd_ = length;};
+	}
+
+	private static boolean startsWith(CharSequence text, int from, String prefix) {
+		if (from + prefix.length() > text.length()) {return false;};
+		for (int i = 0; i < prefix.length(); i++) {
+			if (text.charAt(from + i) != prefix.charAt(i)) {return false;};
+		}
+		return true;
+	}
+
+	/**
+	 * Olvida el documento analizado, como si se hubiera analizado un documento vacío
+	 */
+	public void clear() {
+		parse("");
+	}
+
+	/**
+	 * @return true si es un documento postscript
+	 */
+	public boolean isPostscript() {
+		return postscript_;
+	}
+
+	/**
+	 * @return autor del documento, como vista sobre el documento
+	 */
+	public CharSequence author() {
+		return (authorStart_ < 0) ? UNKNOWN_AUTHOR : author_;
+	}
+
+	/**
+	 * @return título del documento, como vista sobre el documento
+	 */
+	public CharSequence title() {
+		if (! postscript_) {return ASCII_TITLE;};
+		return (titleStart_ < 0) ? UNTITLED : title_;
+	}
+
+	/**
+	 * @return posición del autor en el documento, -1 si no tiene
+	 */
+	public int authorOffset() {
+		return authorStart_;
+	}
+
+	/**
+	 * @return longitud del autor en el documento, 0 si no tiene
+	 */
+	public int authorLength() {
+		return (authorStart_ < 0) ? 0 : authorEnd_ - authorStart_;
+	}
+
+	/**
+	 * @return posición del título en el documento, -1 si no tiene
+	 */
+	public int titleOffset() {
+		return titleStart_;
+	}
+
+	/**
+	 * @return longitud del título en el documento, 0 si no tiene
+	 */
+	public int titleLength() {
+		return (titleStart_ < 0) ? 0 : titleEnd_ - titleStart_;
+	}
+}
@@ -0,0 +1,163 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.Arrays;
+
+/**
+An <em>EventQueue</em> holds simulation events ordered by their time; events with the same time
+are handed out in the order they were scheduled.
+An event is a (kind, request, position) triple of primitives, so scheduling does not allocate
+once the queue has grown to its working size.
+ */
+public class EventQueue {
+	private long[] time_;
+	private long[] seq_;
+	private byte[] kind_;
+	private int[] request_;
+	private int[] position_;
+	private int size_;
+	private long nextSeq_;
+
+	/**
+	 * Valores del último evento extraído con {@link #poll()}
+	 */
+	private long polledTime_;
+	private byte polledKind_;
+	private int polledRequest_, polledPosition_;
+
+	public EventQueue(int capacity) {
+		capacity = Math.max(capacity, 16);
+		time_ = new long[capacity];
+		seq_ = new long[capacity];
+		kind_ = new byte[capacity];
+		request_ = new int[capacity];
+		position_ = new int[capacity];
+		size_ = 0;
+		nextSeq_ = 0;
+	}
+
+	/**
+	 * @return true si no quedan eventos pendientes
+	 */
+	public boolean isEmpty() {
+		return size_ == 0;
+	}
+
+	/**
+	 * @return número de eventos pendientes
+	 */
+	public int size() {
+		return size_;
+	}
+
+	/**
+	 * Programa un evento
+	 * @param time instante simulado en el que ocurre
+	 * @param kind tipo de evento
+	 * @param request petición a la que pertenece
+	 * @param position posición del nodo en el token ring
+	 */
+	public void schedule(long time, byte kind, int request, int position) {
+		if (size_ == time_.length) {grow();};
+		int i = size_++;
+		long seq = nextSeq_++;
+		//sift up
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (! before(time, seq, parent)) {break;};
+			move(parent, i);
+			i = parent;
+		}
+		set(i, time, seq, kind, request, position);
+	}
+
+	/**
+	 * Extrae el evento más temprano; sus valores quedan disponibles en polledTime(), polledKind(), ...
+	 * <p><strong>Precondition:</strong> ! isEmpty();</p>
+	 */
+	public void poll() {
+		assert size_ > 0;
+		polledTime_ = time_[0];
+		polledKind_ = kind_[0];
+		polledRequest_ = request_[0];
+		polledPosition_ = position_[0];
+		int last = --size_;
+		if (last == 0) {return;};
+		long time = time_[last], seq = seq_[last];
+		byte kind = kind_[last];
+		int request = request_[last], position = position_[last];
+		//sift down
+		int i = 0, half = last >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if ((child + 1 < last) && before(time_[child + 1], seq_[child + 1], child)) {child++;};
+			if (! before(time_[child], seq_[child], time, seq)) {break;};
+			move(child, i);
+			i = child;
+		}
+		set(i, time, seq, kind, request, position);
+	}
+
+	public long polledTime() {
+		return polledTime_;
+	}
+
+	public byte polledKind() {
+		return polledKind_;
+	}
+
+	public int polledRequest() {
+		return polledRequest_;
+	}
+
+	public int polledPosition() {
+		return polledPosition_;
+	}
+
+	private boolean before(long time, long seq, int other) {
+		return before(time, seq, time_[other], seq_[other]);
+	}
+
+	private static boolean before(long time, long seq, long otherTime, long otherSeq) {
+		return (time < otherTime) || ((time == otherTime) && (seq < otherSeq));
+	}
+
+	private void move(int from, int to) {
+		set(to, time_[from], seq_[from], kind_[from], request_[from], position_[from]);
+	}
+
+	private void set(int i, long time, long seq, byte kind, int request, int position) {
+		time_[i] = time;
+		seq_[i] = seq;
+		kind_[i] = kind;
+		request_[i] = request;
+		position_[i] = position;
+	}
+
+	private void grow() {
+		int capacity = time_.length * 2;
+		time_ = Arrays.copyOf(time_, capacity);
+		seq_ = Arrays.copyOf(seq_, capacity);
+		kind_ = Arrays.copyOf(kind_, capacity);
+		request_ = Arrays.copyOf(request_, capacity);
+		position_ = Arrays.copyOf(position_, capacity);
+	}
+}
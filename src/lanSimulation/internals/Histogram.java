@@ -0,0 +1,122 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+A <em>Histogram</em> counts non negative values in buckets of powers of two: bucket 0 holds 0 and
+bucket b holds the values from 2^(b-1) up to 2^b - 1. Recording a value never allocates and never
+locks, so it can stay on in the paths that handle requests; percentiles are therefore only known
+up to their bucket. The buckets are <em>LongAdder</em>s, so threads that record at the same time do
+not contend on the cache line of a shared array.
+ */
+public class Histogram {
+	private final LongAdder[] buckets_ = new LongAdder[65];
+	private final LongAdder count_ = new LongAdder(), sum_ = new LongAdder();
+	private final AtomicLong max_ = new AtomicLong();
+
+	public Histogram() {
+		for (int b = 0; b < buckets_.length; b++) {
+			buckets_[b] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Cuenta un valor
+	 * @param value valor a contar, negativo cuenta como 0
+	 */
+	public void record(long value) {
+		if (value < 0) {value = 0;};
+		buckets_[64 - Long.numberOfLeadingZeros(value)].increment();
+		count_.increment();
+		sum_.add(value);
+		long max = max_.get();
+		while ((value > max) && ! max_.compareAndSet(max, value)) {
+			max = max_.get();
+		}
+	}
+
+	/**
+	 * @return número de valores contados
+	 */
+	public long count() {
+		return count_.sum();
+	}
+
+	/**
+	 * @return suma de los valores contados
+	 */
+	public long sum() {
+		return sum_.sum();
+	}
+
+	/**
+	 * @return mayor valor contado, 0 si no hay ninguno
+	 */
+	public long max() {
+		return max_.get();
+	}
+
+	/**
+	 * @return media de los valores contados, 0 si no hay ninguno
+	 */
+	public double mean() {
+		long count = count();
+		return (count == 0) ? 0 : (double) sum() / count;
+	}
+
+	/**
+	 * @param fraction fracción de los valores (0.5 para la mediana, 0.99 para el percentil 99)
+	 * @return límite superior del bucket que contiene el percentil, sin pasar del máximo
+	 */
+	public long percentile(double fraction) {
+		assert (fraction >= 0) & (fraction <= 1);
+		long[] counts = new long[buckets_.length];
+		long total = 0;
+		for (int b = 0; b < counts.length; b++) {
+			counts[b] = buckets_[b].sum();
+			total += counts[b];
+		}
+		if (total == 0) {return 0;};
+		long rank = (long) Math.ceil(fraction * total), seen = 0;
+		for (int b = 0; b < counts.length; b++) {
+			seen += counts[b];
+			if ((seen >= rank) && (counts[b] > 0)) {
+				long upper = (b == 0) ? 0 : (b == 64) ? Long.MAX_VALUE : (1L << b) - 1;
+				return Math.min(upper, max());
+			};
+		}
+		return max();
+	}
+
+	/**
+	 * Pone el histograma a cero; no es atómico respecto a los valores que se cuentan a la vez
+	 */
+	public void reset() {
+		for (int b = 0; b < buckets_.length; b++) {
+			buckets_[b].reset();
+		}
+		count_.reset();
+		sum_.reset();
+		max_.set(0);
+	}
+}
@@ -0,0 +1,334 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+A <em>NetworkMetrics</em> measures the requests handled by a network: requests, deliveries and
+failures per reason, hops per request, broadcast fan-out, request latencies and the number of
+packets every node forwarded.
+<p>Recording only increments <em>LongAdder</em>s, atomic arrays and {@link Histogram}s, never
+allocates and never locks, so the metrics stay on. The packets forwarded per node are counted in a
+single counter per node id (8 bytes per node), reserved by {@link #reserve(int)} when the network
+publishes a topology with new ids rather than on the forwarding path. They are read through
+{@link #snapshot()} or through JMX, see {@link NetworkMetricsMBean}.</p>
+ */
+public class NetworkMetrics implements NetworkMetricsMBean {
+	/**
+	 * Número de nodos por segmento de los contadores por nodo
+	 */
+	private static final int SEGMENT_SIZE = 1024;
+
+	private final SymbolTable symbols_;
+	private final LongAdder printRequests_, broadcastRequests_, deliveries_, acceptances_;
+	/**
+    Holds the failures indexed by reason, see ReportSink#deliveryFailed(byte).
+	 */
+	private final LongAdder[] failures_;
+	private final Histogram hops_, printLatency_, broadcastLatency_;
+	/**
+    Holds the packets forwarded per node id, in segments of SEGMENT_SIZE ids; segments are added but never
+    replaced, so no count is lost while they are added.
+	 */
+	private volatile AtomicLongArray[] forwarded_;
+
+	/**
+	 * @param symbols tabla de símbolos que da su id a cada nodo
+	 */
+	public NetworkMetrics(SymbolTable symbols) {
+		symbols_ = symbols;
+		printRequests_ = new LongAdder();
+		broadcastRequests_ = new LongAdder();
+		deliveries_ = new LongAdder();
+		acceptances_ = new LongAdder();
+		failures_ = new LongAdder[] {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+		hops_ = new Histogram();
+		printLatency_ = new Histogram();
+		broadcastLatency_ = new Histogram();
+		forwarded_ = new AtomicLongArray[0];
+	}
+
+	/**
+	 * Reserva contadores por nodo para todos los ids menores que nodes; la red lo llama antes de
+	 * publicar una topología, así contar un salto nunca reserva memoria
+	 * @param nodes número de ids asignados
+	 */
+	public synchronized void reserve(int nodes) {
+		AtomicLongArray[] segments = forwarded_;
+		int needed = (nodes + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+		if (needed <= segments.length) {return;};
+		AtomicLongArray[] grown = new AtomicLongArray[needed];
+		System.arraycopy(segments, 0, grown, 0, segments.length);
+		for (int i = segments.length; i < grown.length; i++) {
+			grown[i] = new AtomicLongArray(SEGMENT_SIZE);
+		}
+		forwarded_ = grown;
+	}
+
+	/**
+	 * Un nodo pasa un paquete al siguiente
+	 * @param nodeId id del nodo
+	 */
+	public void forwarded(int nodeId) {
+		AtomicLongArray[] segments = forwarded_;
+		int segment = nodeId / SEGMENT_SIZE;
+		//ids not reserved (see reserve) are not counted
+		if ((nodeId < 0) || (segment >= segments.length)) {return;};
+		segments[segment].incrementAndGet(nodeId % SEGMENT_SIZE);
+	}
+
+	/**
+	 * Un paquete ha recorrido los saltos indicados desde su origen
+	 */
+	public void travelled(int hops) {
+		hops_.record(hops);
+	}
+
+	/**
+	 * Un nodo acepta un paquete broadcast
+	 */
+	public void accepted() {
+		acceptances_.increment();
+	}
+
+	/**
+	 * Varios nodos aceptan un paquete broadcast, contados una sola vez por petición
+	 * @param nodes número de nodos que lo aceptan
+	 */
+	public void accepted(int nodes) {
+		acceptances_.add(nodes);
+	}
+
+	/**
+	 * Se ha atendido una petición de impresión
+	 * @param nanos tiempo que ha tardado en atenderse
+	 */
+	public void printHandled(long nanos) {
+		printRequests_.increment();
+		printLatency_.record(nanos);
+	}
+
+	/**
+	 * Se ha atendido una petición broadcast
+	 * @param nanos tiempo que ha tardado en atenderse
+	 */
+	public void broadcastHandled(long nanos) {
+		broadcastRequests_.increment();
+		broadcastLatency_.record(nanos);
+	}
+
+	/**
+	 * Se ha entregado un trabajo a una impresora
+	 */
+	public void delivered() {
+		deliveries_.increment();
+	}
+
+	/**
+	 * No se ha podido entregar un trabajo
+	 * @param reason motivo, ver ReportSink#deliveryFailed(byte)
+	 */
+	public void failed(byte reason) {
+		failures_[reason].increment();
+	}
+
+	public long getPrintRequests() {
+		return printRequests_.sum();
+	}
+
+	public long getBroadcastRequests() {
+		return broadcastRequests_.sum();
+	}
+
+	public long getDeliveries() {
+		return deliveries_.sum();
+	}
+
+	public long getFailuresDestinationNotFound() {
+		return failures_[ReportSink.DESTINATION_NOT_FOUND].sum();
+	}
+
+	public long getFailuresDestinationNotAPrinter() {
+		return failures_[ReportSink.DESTINATION_NOT_A_PRINTER].sum();
+	}
+
+	public long getFailuresSpoolFull() {
+		return failures_[ReportSink.SPOOL_FULL].sum();
+	}
+
+	public long getFailuresOutput() {
+		return failures_[ReportSink.OUTPUT_FAILED].sum();
+	}
+
+	public long getHops() {
+		return hops_.sum();
+	}
+
+	public double getMeanHopsPerRequest() {
+		return hops_.mean();
+	}
+
+	public long getMaxHopsPerRequest() {
+		return hops_.max();
+	}
+
+	public long getBroadcastAcceptances() {
+		return acceptances_.sum();
+	}
+
+	public double getMeanBroadcastFanOut() {
+		long broadcasts = getBroadcastRequests();
+		return (broadcasts == 0) ? 0 : (double) getBroadcastAcceptances() / broadcasts;
+	}
+
+	public double getMeanPrintLatency() {
+		return printLatency_.mean();
+	}
+
+	public long getPrintLatencyP50() {
+		return printLatency_.percentile(0.5);
+	}
+
+	public long getPrintLatencyP99() {
+		return printLatency_.percentile(0.99);
+	}
+
+	public long getMaxPrintLatency() {
+		return printLatency_.max();
+	}
+
+	public double getMeanBroadcastLatency() {
+		return broadcastLatency_.mean();
+	}
+
+	public long getBroadcastLatencyP50() {
+		return broadcastLatency_.percentile(0.5);
+	}
+
+	public long getBroadcastLatencyP99() {
+		return broadcastLatency_.percentile(0.99);
+	}
+
+	public long getMaxBroadcastLatency() {
+		return broadcastLatency_.max();
+	}
+
+	public long forwardedBy(String node) {
+		return forwardedBy(symbols_.idOf(node));
+	}
+
+	/**
+	 * @param nodeId id del nodo
+	 * @return número de paquetes que el nodo ha pasado al siguiente
+	 */
+	public long forwardedBy(int nodeId) {
+		AtomicLongArray[] segments = forwarded_;
+		int segment = nodeId / SEGMENT_SIZE;
+		if ((nodeId < 0) || (segment >= segments.length)) {return 0;};
+		return segments[segment].get(nodeId % SEGMENT_SIZE);
+	}
+
+	/**
+	 * @return histograma de saltos por petición
+	 */
+	public Histogram hops() {
+		return hops_;
+	}
+
+	/**
+	 * @return histograma de latencias de las peticiones de impresión, en nanosegundos
+	 */
+	public Histogram printLatency() {
+		return printLatency_;
+	}
+
+	/**
+	 * @return histograma de latencias de las peticiones broadcast, en nanosegundos
+	 */
+	public Histogram broadcastLatency() {
+		return broadcastLatency_;
+	}
+
+	public void reset() {
+		printRequests_.reset();
+		broadcastRequests_.reset();
+		deliveries_.reset();
+		acceptances_.reset();
+		for (int i = 0; i < failures_.length; i++) {
+			failures_[i].reset();
+		}
+		hops_.reset();
+		printLatency_.reset();
+		broadcastLatency_.reset();
+		AtomicLongArray[] segments = forwarded_;
+		for (int s = 0; s < segments.length; s++) {
+			for (int i = 0; i < SEGMENT_SIZE; i++) {
+				segments[s].set(i, 0);
+			}
+		}
+	}
+
+	/**
+	 * @return copia de todas las métricas en este momento, con los contadores por nodo indexados por nombre
+	 */
+	public Map<String, Number> snapshot() {
+		Map<String, Number> snapshot = new LinkedHashMap<String, Number>();
+		snapshot.put("printRequests", Long.valueOf(getPrintRequests()));
+		snapshot.put("broadcastRequests", Long.valueOf(getBroadcastRequests()));
+		snapshot.put("deliveries", Long.valueOf(getDeliveries()));
+		snapshot.put("failuresDestinationNotFound", Long.valueOf(getFailuresDestinationNotFound()));
+		snapshot.put("failuresDestinationNotAPrinter", Long.valueOf(getFailuresDestinationNotAPrinter()));
+		snapshot.put("failuresSpoolFull", Long.valueOf(getFailuresSpoolFull()));
+		snapshot.put("failuresOutput", Long.valueOf(getFailuresOutput()));
+		snapshot.put("hops", Long.valueOf(getHops()));
+		snapshot.put("meanHopsPerRequest", Double.valueOf(getMeanHopsPerRequest()));
+		snapshot.put("maxHopsPerRequest", Long.valueOf(getMaxHopsPerRequest()));
+		snapshot.put("broadcastAcceptances", Long.valueOf(getBroadcastAcceptances()));
+		snapshot.put("meanBroadcastFanOut", Double.valueOf(getMeanBroadcastFanOut()));
+		snapshot.put("meanPrintLatency", Double.valueOf(getMeanPrintLatency()));
+		snapshot.put("printLatencyP50", Long.valueOf(getPrintLatencyP50()));
+		snapshot.put("printLatencyP99", Long.valueOf(getPrintLatencyP99()));
+		snapshot.put("maxPrintLatency", Long.valueOf(getMaxPrintLatency()));
+		snapshot.put("meanBroadcastLatency", Double.valueOf(getMeanBroadcastLatency()));
+		snapshot.put("broadcastLatencyP50", Long.valueOf(getBroadcastLatencyP50()));
+		snapshot.put("broadcastLatencyP99", Long.valueOf(getBroadcastLatencyP99()));
+		snapshot.put("maxBroadcastLatency", Long.valueOf(getMaxBroadcastLatency()));
+		int nodes = symbols_.size();
+		for (int id = 0; id < nodes; id++) {
+			snapshot.put("forwarded." + symbols_.nameOf(id), Long.valueOf(forwardedBy(id)));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Escribe una copia de las métricas como texto, una línea "nombre = valor" por métrica
+	 * @param out donde se escribe
+	 */
+	public void printOn(Appendable out) throws IOException {
+		for (Map.Entry<String, Number> e : snapshot().entrySet()) {
+			out.append(e.getKey()).append(" = ").append(e.getValue().toString()).append('\n');
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+/**
+Management interface of {@link NetworkMetrics}, as published through JMX.
+Latencies are in nanoseconds.
+ */
+public interface NetworkMetricsMBean {
+	public long getPrintRequests();
+
+	public long getBroadcastRequests();
+
+	public long getDeliveries();
+
+	public long getFailuresDestinationNotFound();
+
+	public long getFailuresDestinationNotAPrinter();
+
+	public long getFailuresSpoolFull();
+
+	public long getFailuresOutput();
+
+	public long getHops();
+
+	public double getMeanHopsPerRequest();
+
+	public long getMaxHopsPerRequest();
+
+	public long getBroadcastAcceptances();
+
+	public double getMeanBroadcastFanOut();
+
+	public double getMeanPrintLatency();
+
+	public long getPrintLatencyP50();
+
+	public long getPrintLatencyP99();
+
+	public long getMaxPrintLatency();
+
+	public double getMeanBroadcastLatency();
+
+	public long getBroadcastLatencyP50();
+
+	public long getBroadcastLatencyP99();
+
+	public long getMaxBroadcastLatency();
+
+	/**
+	 * @param node nombre del nodo
+	 * @return número de paquetes que el nodo ha pasado al siguiente
+	 */
+	public long forwardedBy(String node);
+
+	/**
+	 * Pone todas las métricas a cero
+	 */
+	public void reset();
+}
@@ -21,6 +21,7 @@ package lanSimulation.internals;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
 
 import lanSimulation.Network;
 
@@ -39,6 +40,11 @@ public class Node {
     @see lanSimulation.internals.Node
 	 */
 	public Node nextNode_;
+	/**
+    Holds the id of #name_ in the symbol table of the network the Node is on, -1 while not on a network.
+    Used to compare nodes without comparing names.
+	 */
+	public int id_ = SymbolTable.NO_ID;
 	
 	/**
 	 * Constructor por defecto para nodos específicos de tipo Worlstation y Printer
@@ -70,6 +76,15 @@ public class Node {
 		report.flush();
 	}
 
+	/**
+	 * Informa de que el nodo actual pasa el paquete al siguiente nodo
+	 * @param report donde se informa del evento
+	 */
+	
+	public void logging(ReportSink report) {
+		report.hop(name_);
+	}
+
 	/**
 	 * Guarda información relativa al nodo actual (mensaje de broadcast)
 	 * @param report donde se guarda la info
@@ -82,13 +97,22 @@ public class Node {
 		report.write("' accepts broadcase packet.\n");
 	}
 
+	/**
+	 * Informa de que el nodo actual acepta el paquete broadcast
+	 * @param report donde se informa del evento
+	 */
+	
+	public void acceptBroadcastPackage(ReportSink report) {
+		report.broadcastAccepted(name_);
+	}
+
 	/**
 	 * Imprime información relativa al nodo genérico
 	 * @param buf string donde se guarda la info
 	 * @param isHtml nos permite distinguir el tipo de salida que va a tener en función de si es o no html
 	 */
 	
-	private void printInfoNode(StringBuffer buf, boolean isHtml) {
+	private void printInfoNode(Appendable buf, boolean isHtml) throws IOException {
 		buf.append(!isHtml ? "Node ": "<node>");
 		buf.append(name_);
 		buf.append(!isHtml ? " [Node]": "</node>");
@@ -103,12 +127,36 @@ public class Node {
 		return ! destinationOrigin.equals(name_);
 	}
 
+	/**
+	 * Nos indica si el paquete ha llegado ya al nodo destino, comparando ids
+	 * @param destinationOrigin id del nodo destino
+	 * @return true/false si ha llegado o no
+	 */
+	public boolean atDestination(int destinationOrigin) {
+		return destinationOrigin != id_;
+	}
+
 	/**
 	Write a printable representation of #receiver on the given #buf.
 	<p><strong>Precondition:</strong> isInitialized();</p>
 	 * @param buf string donde se guarda la salida
 	 */
 	public void printOn (StringBuffer buf) {
+		try {
+			printOn((Appendable) buf);
+		} catch (IOException exc) {
+			// a StringBuffer does not throw
+		};
+	}
+
+	/**
+	Write a printable representation of #receiver on the given #buf, node by node,
+	so the representation never has to be held in memory as a whole.
+	<p><strong>Precondition:</strong> isInitialized();</p>
+	 * @param buf donde se escribe la salida (por ejemplo un Writer)
+	 * @throws IOException
+	 */
+	public void printOn (Appendable buf) throws IOException {
 
 		Node currentNode = this;
 		do {
@@ -126,11 +174,13 @@ public class Node {
 	 * @param isHtml nos permite distinguir la sintaxis de la salida en función de si es httml o no
 	 */
 	
-	private void checkTypeOfNode(Node currentNode, StringBuffer buf, boolean isHtml) {
+	private void checkTypeOfNode(Node currentNode, Appendable buf, boolean isHtml) throws IOException {
 		if(currentNode instanceof Workstation) {
 			((Workstation) currentNode).printInfoWorkstation(buf, isHtml);
 		} else if(currentNode instanceof Printer) {
 			((Printer) currentNode).printInfoPrinter(buf, isHtml);
+		} else if(currentNode instanceof Bridge) {
+			((Bridge) currentNode).printInfoBridge(buf, isHtml);
 		} else if(currentNode instanceof Node) {
 			currentNode.printInfoNode(buf, isHtml);
 		} else {
@@ -145,6 +195,21 @@ public class Node {
 	 */
 	
 	public void printUnknownOn(StringBuffer buf, boolean isHtml) {
+		try {
+			printUnknownOn((Appendable) buf, isHtml);
+		} catch (IOException exc) {
+			// a StringBuffer does not throw
+		};
+	}
+
+	/**
+	 * Caso de imprimir por la salida cuando el nodo no es de los tipos especificados
+	 * @param buf donde se escribe
+	 * @param isHtml nos permite distinguir la sintaxis de la salida en función de si es httml o no
+	 * @throws IOException
+	 */
+	
+	public void printUnknownOn(Appendable buf, boolean isHtml) throws IOException {
 		buf.append(isHtml ? "(Unexpected)": "<unknown></unknown>");
 	}
 	
@@ -154,6 +219,20 @@ public class Node {
 	 * @param buf string donde se guarda la salida
 	 */
 	public void printXMLOn (StringBuffer buf) {
+		try {
+			printXMLOn((Appendable) buf);
+		} catch (IOException exc) {
+			// a StringBuffer does not throw
+		};
+	}
+
+	/**
+	Write an XML representation of #receiver on the given #buf, node by node.
+	<p><strong>Precondition:</strong> isInitialized();</p>
+	 * @param buf donde se escribe la salida (por ejemplo un Writer)
+	 * @throws IOException
+	 */
+	public void printXMLOn (Appendable buf) throws IOException {
 	
 		Node currentNode = this;
 		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n\n<network>");
@@ -171,6 +250,20 @@ public class Node {
 	 * @param buf string donde se guarda la salida
 	 */
 	public void printHTMLOn (StringBuffer buf) {
+		try {
+			printHTMLOn((Appendable) buf);
+		} catch (IOException exc) {
+			// a StringBuffer does not throw
+		};
+	}
+
+	/**
+	Write a HTML representation of #receiver on the given #buf, node by node.
+	<p><strong>Precondition:</strong> isInitialized();</p>
+	 * @param buf donde se escribe la salida (por ejemplo un Writer)
+	 * @throws IOException
+	 */
+	public void printHTMLOn (Appendable buf) throws IOException {
 	
 		buf.append("<HTML>\n<HEAD>\n<TITLE>LAN Simulation</TITLE>\n</HEAD>\n<BODY>\n<H1>LAN SIMULATION</H1>");
 		Node currentNode = this;
@@ -218,6 +311,21 @@ public class Node {
 		 */
 		
 		public void printInfoWorkstation(StringBuffer buf, boolean isHtml) {
+			try {
+				printInfoWorkstation((Appendable) buf, isHtml);
+			} catch (IOException exc) {
+				// a StringBuffer does not throw
+			};
+		}
+
+		/**
+		 * Imprime información relativa al nodo de tipo Workstation
+		 * @param buf donde se escribe la info
+		 * @param isHtml nos permite distinguir el tipo de salida que va a tener en función de si es o no html
+		 * @throws IOException
+		 */
+		
+		public void printInfoWorkstation(Appendable buf, boolean isHtml) throws IOException {
 			buf.append(!isHtml ? "Workstation ": "<workstation>");
 			buf.append(name_);
 			buf.append(!isHtml ? " [Workstation]": "</workstation>");
@@ -230,6 +338,14 @@ public class Node {
 	 */
 	
 	public class Printer extends Node{
+		/**
+	    Holds where the documents streamed to this printer are written, null to discard them.
+		 */
+		private volatile WritableByteChannel output_;
+		/**
+	    Holds the queue of jobs of this printer, null when jobs are printed as soon as they arrive.
+		 */
+		private volatile PrintSpool spool_;
 				
 		/**
 		 * Constructor por defecto para nodos de tipo Printer
@@ -247,10 +363,122 @@ public class Node {
 		 */
 		
 		public void printInfoPrinter(StringBuffer buf, boolean isHtml) {
+			try {
+				printInfoPrinter((Appendable) buf, isHtml);
+			} catch (IOException exc) {
+				// a StringBuffer does not throw
+			};
+		}
+
+		/**
+		 * Imprime información relativa al nodo de tipo Printer
+		 * @param buf donde se escribe la info
+		 * @param isHtml nos permite distinguir el tipo de salida que va a tener en función de si es o no html
+		 * @throws IOException
+		 */
+		
+		public void printInfoPrinter(Appendable buf, boolean isHtml) throws IOException {
 			buf.append(!isHtml ? "Printer ": "<printer>");
 			buf.append(name_);
 			buf.append(!isHtml ? " [Printer]": "</printer>");
 		}
+
+		/**
+		 * Conecta la impresora a la salida donde se escriben los documentos que recibe como payload
+		 * @param output salida de la impresora, null para descartar los documentos
+		 */
+		public void connect(WritableByteChannel output) {
+			output_ = output;
+		}
+
+		/**
+		 * @return salida de la impresora, null si descarta los documentos
+		 */
+		public WritableByteChannel output() {
+			return output_;
+		}
+
+		/**
+		 * @return cola de trabajos de la impresora, null si imprime cada trabajo en cuanto llega
+		 */
+		public PrintSpool spool() {
+			return spool_;
+		}
+
+		void attach(PrintSpool spool) {
+			spool_ = spool;
+		}
+	}
+	
+	/**
+	 * Subclase Bridge que hereda de Node: une su token ring con el token ring de otro Bridge
+	 */
+	
+	public class Bridge extends Node{
+		/**
+	    Holds the bridge on the other token ring, null while the bridge is not linked.
+		 */
+		private volatile Bridge peer_;
+		/**
+	    Holds the routing table of the bridge: routes_[r] is true when packets for token ring r
+	    leave the token ring of the bridge through this bridge.
+		 */
+		private volatile boolean[] routes_ = new boolean[0];
+
+		/**
+		 * Constructor por defecto para nodos de tipo Bridge
+		 * @param name_ nombre del nodo
+		 */
+		
+		public Bridge(String name_) {
+			super(name_);
+		}
+
+		/**
+		 * Imprime información relativa al nodo de tipo Bridge
+		 * @param buf donde se escribe la info
+		 * @param isHtml nos permite distinguir el tipo de salida que va a tener en función de si es o no html
+		 * @throws IOException
+		 */
+		
+		public void printInfoBridge(Appendable buf, boolean isHtml) throws IOException {
+			buf.append(!isHtml ? "Bridge ": "<bridge>");
+			buf.append(name_);
+			buf.append(!isHtml ? " [Bridge]": "</bridge>");
+		}
+
+		/**
+		 * Une este bridge con otro, en los dos sentidos
+		 * @param peer bridge del otro token ring
+		 */
+		public void link(Bridge peer) {
+			peer_ = peer;
+			peer.peer_ = this;
+		}
+
+		/**
+		 * @return bridge del otro token ring, null si no está unido
+		 */
+		public Bridge peer() {
+			return peer_;
+		}
+
+		/**
+		 * Sustituye la tabla de rutas del bridge
+		 * @param routes routes[r] es true si los paquetes para el token ring r salen por este bridge
+		 */
+		public void setRoutes(boolean[] routes) {
+			routes_ = routes;
+		}
+
+		/**
+		 * @param ring número del token ring destino
+		 * @return true si los paquetes para ese token ring salen por este bridge
+		 */
+		public boolean routesTo(int ring) {
+			boolean[] routes = routes_;
+			return (ring < routes.length) && routes[ring];
+		}
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,280 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.HashMap;
+
+/**
+A <em>NodeIndex</em> maps the names of all nodes on a token ring on the nodes themselves,
+their position on the token ring and their type.
+Used to resolve a destination without travelling the token ring.
+<p>An index is an immutable snapshot of the token ring: changes to the topology produce a
+new index (see {@link #withInsertedAfter(int, Node)}, {@link #withRemoved(int)} and
+{@link #withReplaced(int, Node)}), so packets travelling an older snapshot keep seeing
+a consistent token ring.</p>
+<p>Every change copies the nodes and rebuilds the map of names of the snapshot, so it costs time
+and memory in the size of the token ring; changes are expected to be rare next to lookups.</p>
+ */
+public class NodeIndex {
+	/**
+	 * Tipos de nodo devueltos por {@link #typeOf(String)}
+	 */
+	public static final byte UNKNOWN = -1, NODE = 0, WORKSTATION = 1, PRINTER = 2, BRIDGE = 3;
+
+	/**
+    Holds the node the enumeration of the token ring started from.
+	 */
+	private final Node first_;
+	/**
+    Holds the topology version this snapshot represents.
+	 */
+	private final long version_;
+	/**
+    Holds the nodes in token ring order, starting with #first_.
+	 */
+	private final Node[] ring_;
+	/**
+    Maps the names of the nodes on their position in #ring_.
+	 */
+	private final HashMap<String, Integer> positions_;
+	/**
+    Holds the number of workstations and printers on the token ring.
+	 */
+	private final int workstationCount_, printerCount_;
+	/**
+    Holds whether the enumeration of the token ring ended at #first_.
+	 */
+	private final boolean circular_;
+
+	/**
+	 * Recorre el token ring desde el nodo indicado hasta volver a un nodo ya visitado
+	 * @param first nodo desde el que se empieza a recorrer
+	 * @param version versión de la topología que representa el índice
+	 */
+	public NodeIndex(Node first, long version) {
+		first_ = first;
+		version_ = version;
+		positions_ = new HashMap<String, Integer>();
+		int size = 0;
+		Node currentNode = first;
+		while ((currentNode != null) && ! positions_.containsKey(currentNode.name_)) {
+			positions_.put(currentNode.name_, Integer.valueOf(size++));
+			currentNode = currentNode.nextNode_;
+		}
+		circular_ = (first != null) && (currentNode == first);
+		ring_ = new Node[size];
+		int workstations = 0, printers = 0;
+		currentNode = first;
+		for (int i = 0; i < size; i++) {
+			ring_[i] = currentNode;
+			if (currentNode instanceof Node.Workstation) {workstations++;};
+			if (currentNode instanceof Node.Printer) {printers++;};
+			currentNode = currentNode.nextNode_;
+		}
+		workstationCount_ = workstations;
+		printerCount_ = printers;
+	}
+
+	/**
+	 * Construye una nueva versión del índice a partir de un token ring ya ordenado
+	 * @param ring nodos en el orden del token ring (el array pasa a ser del índice)
+	 * @param version versión de la topología que representa el índice
+	 * @param workstations número de workstations en el token ring
+	 * @param printers número de impresoras en el token ring
+	 */
+	private NodeIndex(Node[] ring, long version, int workstations, int printers) {
+		first_ = (ring.length > 0) ? ring[0] : null;
+		version_ = version;
+		ring_ = ring;
+		positions_ = new HashMap<String, Integer>(ring.length * 2);
+		for (int i = 0; i < ring.length; i++) {
+			positions_.put(ring[i].name_, Integer.valueOf(i));
+		}
+		circular_ = ring.length > 0;
+		workstationCount_ = workstations;
+		printerCount_ = printers;
+	}
+
+	/**
+	 * Nueva versión del índice con un nodo añadido tras la posición indicada
+	 * @param pos posición del nodo tras el que se inserta, -1 si el token ring está vacío
+	 * @param node nodo a insertar
+	 * @return nuevo índice, el actual no se modifica
+	 */
+	public NodeIndex withInsertedAfter(int pos, Node node) {
+		Node[] ring = new Node[ring_.length + 1];
+		System.arraycopy(ring_, 0, ring, 0, pos + 1);
+		ring[pos + 1] = node;
+		System.arraycopy(ring_, pos + 1, ring, pos + 2, ring_.length - pos - 1);
+		return new NodeIndex(ring, version_ + 1,
+				workstationCount_ + count(node, WORKSTATION), printerCount_ + count(node, PRINTER));
+	}
+
+	/**
+	 * Nueva versión del índice sin el nodo de la posición indicada
+	 * @param pos posición del nodo a eliminar
+	 * @return nuevo índice, el actual no se modifica
+	 */
+	public NodeIndex withRemoved(int pos) {
+		Node removed = ring_[pos];
+		Node[] ring = new Node[ring_.length - 1];
+		System.arraycopy(ring_, 0, ring, 0, pos);
+		System.arraycopy(ring_, pos + 1, ring, pos, ring_.length - pos - 1);
+		return new NodeIndex(ring, version_ + 1,
+				workstationCount_ - count(removed, WORKSTATION), printerCount_ - count(removed, PRINTER));
+	}
+
+	/**
+	 * Nueva versión del índice con otro nodo en la posición indicada
+	 * @param pos posición del nodo a sustituir
+	 * @param node nodo que ocupa su lugar
+	 * @return nuevo índice, el actual no se modifica
+	 */
+	public NodeIndex withReplaced(int pos, Node node) {
+		Node replaced = ring_[pos];
+		Node[] ring = ring_.clone();
+		ring[pos] = node;
+		return new NodeIndex(ring, version_ + 1,
+				workstationCount_ - count(replaced, WORKSTATION) + count(node, WORKSTATION),
+				printerCount_ - count(replaced, PRINTER) + count(node, PRINTER));
+	}
+
+	/**
+	 * @return 1 si el nodo es del tipo indicado, 0 si no
+	 */
+	private static int count(Node n, byte type) {
+		return (typeOf(n) == type) ? 1 : 0;
+	}
+
+	/**
+	 * @return versión de la topología que representa el índice
+	 */
+	public long version() {
+		return version_;
+	}
+
+	/**
+	 * @return nodo desde el que se construyó el índice
+	 */
+	public Node first() {
+		return first_;
+	}
+
+	/**
+	 * @return número de nodos distintos encontrados en el token ring
+	 */
+	public int size() {
+		return ring_.length;
+	}
+
+	/**
+	 * @return número de workstations en el token ring
+	 */
+	public int workstationCount() {
+		return workstationCount_;
+	}
+
+	/**
+	 * @return número de impresoras en el token ring
+	 */
+	public int printerCount() {
+		return printerCount_;
+	}
+
+	/**
+	 * @return true si el recorrido del token ring volvió al primer nodo
+	 */
+	public boolean isCircular() {
+		return circular_;
+	}
+
+	/**
+	 * @param name nombre del nodo buscado
+	 * @return el nodo con ese nombre o null si no está en el token ring
+	 */
+	public Node lookup(String name) {
+		int pos = positionOf(name);
+		return (pos < 0) ? null : ring_[pos];
+	}
+
+	/**
+	 * @param pos posición en el token ring (0 es el primer nodo)
+	 * @return nodo en esa posición
+	 */
+	public Node nodeAt(int pos) {
+		return ring_[pos];
+	}
+
+	/**
+	 * @param pos posición en el token ring
+	 * @return posición del nodo siguiente en el token ring
+	 */
+	public int nextPosition(int pos) {
+		return (pos + 1 == ring_.length) ? 0 : pos + 1;
+	}
+
+	/**
+	 * @param name nombre del nodo buscado
+	 * @return posición del nodo en el token ring o -1 si no está
+	 */
+	public int positionOf(String name) {
+		Integer pos = positions_.get(name);
+		return (pos == null) ? -1 : pos.intValue();
+	}
+
+	/**
+	 * @param name nombre del nodo buscado
+	 * @return tipo del nodo (NODE, WORKSTATION, PRINTER o BRIDGE) o UNKNOWN si no está
+	 */
+	public byte typeOf(String name) {
+		Node n = lookup(name);
+		return (n == null) ? UNKNOWN : typeOf(n);
+	}
+
+	/**
+	 * @param n nodo del que se quiere conocer el tipo
+	 * @return tipo del nodo (NODE, WORKSTATION, PRINTER o BRIDGE)
+	 */
+	public static byte typeOf(Node n) {
+		if (n instanceof Node.Workstation) {
+			return WORKSTATION;
+		} else if (n instanceof Node.Printer) {
+			return PRINTER;
+		} else if (n instanceof Node.Bridge) {
+			return BRIDGE;
+		} else {
+			return NODE;
+		}
+	}
+
+	/**
+	 * Número de saltos que da un paquete desde el nodo origen hasta llegar al destino.
+	 * Si origen y destino coinciden el paquete recorre el token ring completo.
+	 * @param from nombre del nodo origen
+	 * @param to nombre del nodo destino
+	 * @return número de saltos o -1 si alguno de los nodos no está en el token ring
+	 */
+	public int hopDistance(String from, String to) {
+		int fromPos = positionOf(from), toPos = positionOf(to);
+		if ((fromPos < 0) || (toPos < 0)) {return -1;};
+		int hops = (toPos - fromPos + ring_.length) % ring_.length;
+		return (hops == 0) ? ring_.length : hops;
+	}
+}
@@ -40,10 +40,30 @@ public class Packet {
     Holds the name of the Node which should receive the information.
 	 */
 	public String destination_;
+	/**
+    Holds the ids of #origin_ and #destination_ in the symbol table of the network, -1 when unknown.
+    Used to recognize the nodes while travelling the token ring.
+	 */
+	public int originId_, destinationId_;
+	/**
+    Holds the document when it is streamed instead of held in #message_, null otherwise.
+    #message_ then holds only the header of the document.
+	 */
+	public Payload payload_;
+	/**
+    Holds the ledger where the delivery of the packet is accounted for, null to not account for it.
+	 */
+	public AccountingLedger ledger_;
+	/**
+    Holds why the packet was not printed, see ReportSink#deliveryFailed(byte); -1 while it was not refused.
+	 */
+	public byte failure_ = -1;
+	/**
+    Holds whether the packet only queued its job on the spool of its printer; the spool then measures
+    whether the job is printed.
+	 */
+	public boolean queued_ = false;
 
-	private String author = "Unknown";
-	private String title = "Untitled";
-	
 	/**
 Construct a <em>Packet</em> with given #message and #destination.
 	 */
@@ -51,64 +71,106 @@ Construct a <em>Packet</em> with given #message and #destination.
 		message_ = message;
 		origin_ = "";
 		destination_ = destination;
+		originId_ = SymbolTable.NO_ID;
+		destinationId_ = SymbolTable.NO_ID;
 	}
 
 	/**
 Construct a <em>Packet</em> with given #message, #origin and #receiver.
 	 */
 	public Packet(String message, String origin, String destination) {
+		this(message, origin, destination, SymbolTable.NO_ID, SymbolTable.NO_ID);
+	}
+
+	/**
+Construct a <em>Packet</em> with given #message, #origin and #receiver, and their ids in the symbol table of the network.
+	 */
+	public Packet(String message, String origin, String destination, int originId, int destinationId) {
 		message_ = message;
 		origin_ = origin;
 		destination_ = destination;
+		originId_ = originId;
+		destinationId_ = destinationId;
 	}
 
-	private void accounting(Writer report, String message) throws IOException {
-		report.write("\tAccounting -- author = '");
-		report.write(this.author);
-		report.write("' -- title = '");
-		report.write(this.title);
-		report.write("'\n");
-		report.write(">>> " + message + ".\n\n");
-		report.flush();
+	/**
+Construct a <em>Packet</em> that streams #payload from #origin to #receiver, with their ids in the symbol table of the network.
+	 */
+	public Packet(Payload payload, String origin, String destination, int originId, int destinationId) {
+		this(payload.header(), origin, destination, originId, destinationId);
+		payload_ = payload;
 	}
-	
+
+	/**
+	 * Entrega el paquete a la impresora, registrando autor y título del documento
+	 * @param printer nodo al que ha llegado el paquete
+	 * @param report donde se guarda la información
+	 * @return true si el nodo es una impresora y el trabajo se ha entregado
+	 */
 	public boolean print (Node printer, Writer report) {
+		return print(printer, new WriterReportSink(report));
+	}
+
+	/**
+	 * Entrega el paquete a la impresora, registrando autor y título del documento
+	 * @param printer nodo al que ha llegado el paquete
+	 * @param report donde se informa de la entrega
+	 * @return true si el nodo es una impresora y el trabajo se ha entregado
+	 */
+	public boolean print (Node printer, ReportSink report) {
 		
-		int startPos = 0, endPos = 0;
-	
 		if (printer instanceof Node.Printer) {
-			try {
-				if (message_.startsWith("!PS")) {
-					startPos = message_.indexOf("author:");
-					if (startPos >= 0) {
-						endPos = message_.indexOf(".", startPos + 7);
-						if (endPos < 0) {endPos = message_.length();};
-						author = message_.substring(startPos + 7, endPos);};
-						startPos = message_.indexOf("title:");
-						if (startPos >= 0) {
-							endPos = message_.indexOf(".", startPos + 6);
-							if (endPos < 0) {endPos = message_.length();};
-							title = message_.substring(startPos + 6, endPos);}
-							accounting(report, "Postscript job delivered");
-				} else {
-					title = "ASCII DOCUMENT";
-					if (message_.length() >= 16) {
-						author = message_.substring(8, 16);};
-						accounting(report, "ASCII Print job delivered");
-				};
-			} catch (IOException exc) {
-				// just ignore
+			PrintSpool spool = ((Node.Printer) printer).spool();
+			if (spool == null) {
+				return deliver((Node.Printer) printer, report);
+			} else if (! spool.submit(this, report)) {
+				return refuse(ReportSink.SPOOL_FULL, report);
 			};
+			queued_ = true;
 			return true;
+		} else {
+			return refuse(ReportSink.DESTINATION_NOT_A_PRINTER, report);
+		}
+	}
+
+	/**
+	 * Informa de que el paquete no se imprime
+	 * @param reason motivo, ver ReportSink#deliveryFailed(byte)
+	 * @return siempre false
+	 */
+	private boolean refuse(byte reason, ReportSink report) {
+		failure_ = reason;
+		report.deliveryFailed(reason);
+		return false;
+	}
+
+	/**
+	 * Imprime el documento en la impresora y registra su autor y título
+	 * @param printer impresora que imprime el documento
+	 * @param report donde se informa de la impresión
+	 * @return true si se ha impreso, false si ha fallado la salida de la impresora (OUTPUT_FAILED)
+	 */
+	public boolean deliver(Node.Printer printer, ReportSink report) {
+		long bytes;
+		if (payload_ == null) {
+			bytes = TextView.utf8Length(message_);
 		} else {
 			try {
-				report.write(">>> Destinition is not a printer, print job cancelled.\n\n");
-				report.flush();
+				bytes = payload_.transferTo(printer.output());
 			} catch (IOException exc) {
-				// just ignore
+				return refuse(ReportSink.OUTPUT_FAILED, report);
 			};
-			return false;
+		};
+		DocumentHeader header = DocumentHeader.forThread().parse(message_);
+		try {
+			if (ledger_ != null) {ledger_.record(header.author(), printer.name_, origin_, bytes);};
+			report.accounting(header.author(), header.title(), header.isPostscript());
+		} finally {
+			//the header of the thread must not keep the document alive
+			header.clear();
 		}
+		return true;
 	}
 
+
 }
\ No newline at end of file
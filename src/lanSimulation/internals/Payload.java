@@ -0,0 +1,221 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+A <em>Payload</em> is a document to print that is streamed instead of held in memory.
+Only its header, the first bytes of the document, is read when the payload is created; it is all
+that accounting needs, so author and title must appear in it. The rest of the document is copied
+to the printer chunk by chunk when the packet is delivered, see {@link #transferTo(WritableByteChannel)}.
+<p>A payload can be delivered only once.</p>
+ */
+public class Payload implements Closeable {
+	/**
+	 * Tamaño por defecto de la cabecera y tamaño de los trozos en que se copia el documento
+	 */
+	public static final int HEADER_SIZE = 1024, CHUNK_SIZE = 64 * 1024;
+
+	/**
+    Holds the direct chunk buffers that are not in use; allocating direct buffers is expensive.
+	 */
+	private static final ConcurrentLinkedQueue<ByteBuffer> pool_ = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private final ReadableByteChannel source_;
+	/**
+    Holds the region of #source_ still to be copied when it is a file, -1 for any other channel.
+	 */
+	private long position_, remaining_;
+	private final ByteBuffer header_;
+	private final String headerText_;
+	private boolean delivered_;
+
+	/**
+Construct a <em>Payload</em> that reads a document from #source, with a header of HEADER_SIZE bytes.
+	 */
+	public Payload(ReadableByteChannel source) throws IOException {
+		this(source, HEADER_SIZE);
+	}
+
+	/**
+Construct a <em>Payload</em> that reads a document from #source, with a header of #headerSize bytes.
+<p><strong>Precondition:</strong> headerSize > 0;</p>
+	 */
+	public Payload(ReadableByteChannel source, int headerSize) throws IOException {
+		this(source, -1, -1, headerSize);
+	}
+
+	/**
+Construct a <em>Payload</em> for the #count bytes of #file starting at #position, with a header of HEADER_SIZE bytes.
+The region is copied with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the
+operating system copy it without passing through the heap.
+<p><strong>Precondition:</strong> position >= 0 & count >= 0;</p>
+	 */
+	public Payload(FileChannel file, long position, long count) throws IOException {
+		this(file, position, count, HEADER_SIZE);
+	}
+
+	private Payload(ReadableByteChannel source, long position, long count, int headerSize) throws IOException {
+		assert headerSize > 0;
+		source_ = source;
+		header_ = ByteBuffer.allocate((count < 0) ? headerSize : (int) Math.min(headerSize, count));
+		if (count < 0) {
+			while (header_.hasRemaining() && (source.read(header_) >= 0)) {}
+			position_ = -1;
+			remaining_ = -1;
+		} else {
+			FileChannel file = (FileChannel) source;
+			while (header_.hasRemaining() && (file.read(header_, position + header_.position()) >= 0)) {}
+			position_ = position + header_.position();
+			remaining_ = count - header_.position();
+		};
+		header_.flip();
+		headerText_ = decode(header_.duplicate());
+		delivered_ = false;
+	}
+
+	/**
+	 * Decodifica la cabecera como UTF-8 hasta el último carácter completo: el corte de la cabecera
+	 * puede caer en medio de un carácter de varios bytes, que queda fuera
+	 * @param header bytes de la cabecera
+	 * @return texto de la cabecera
+	 */
+	private static String decode(ByteBuffer header) {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer text = CharBuffer.allocate(header.remaining());
+		//not the end of the input, so an incomplete last character is left in #header
+		decoder.decode(header, text, false);
+		text.flip();
+		return text.toString();
+	}
+
+	/**
+	 * Abre un fichero entero como payload
+	 * @param file fichero con el documento
+	 * @return payload que lee el fichero; se cierra al entregarlo
+	 */
+	public static Payload open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		return new Payload(channel, 0, channel.size());
+	}
+
+	/**
+	 * @return cabecera del documento, usada para la contabilidad y el informe
+	 */
+	public String header() {
+		return headerText_;
+	}
+
+	/**
+	 * @return true si ya se ha entregado el documento
+	 */
+	public boolean isDelivered() {
+		return delivered_;
+	}
+
+	/**
+	 * Copia el documento completo (cabecera incluida) en el destino y cierra el origen.
+	 * Si el destino es null el documento se lee y se descarta.
+	 * <p><strong>Precondition:</strong> ! isDelivered();</p>
+	 * @param out donde se escribe el documento
+	 * @return número de bytes del documento
+	 * @throws EOFException si el fichero es más corto que la región del documento
+	 */
+	public long transferTo(WritableByteChannel out) throws IOException {
+		assert ! delivered_;
+		delivered_ = true;
+		if (out == null) {out = new NullChannel();};
+		try {
+			long total = header_.remaining();
+			while (header_.hasRemaining()) {out.write(header_);}
+			if (position_ >= 0) {
+				FileChannel file = (FileChannel) source_;
+				while (remaining_ > 0) {
+					long copied = file.transferTo(position_, remaining_, out);
+					if (copied <= 0) {break;};
+					position_ += copied;
+					remaining_ -= copied;
+					total += copied;
+				}
+				if (remaining_ > 0) {
+					throw new EOFException("Document ends " + remaining_ + " bytes before the end of its region");
+				};
+			} else {
+				ByteBuffer pooled = pool_.poll();
+				ByteBuffer chunk = (pooled == null) ? ByteBuffer.allocateDirect(CHUNK_SIZE) : pooled;
+				chunk.clear();
+				try {
+					while (source_.read(chunk) >= 0) {
+						chunk.flip();
+						total += chunk.remaining();
+						while (chunk.hasRemaining()) {out.write(chunk);}
+						chunk.clear();
+					}
+				} finally {
+					pool_.offer(chunk);
+				}
+			};
+			return total;
+		} finally {
+			source_.close();
+		}
+	}
+
+	/**
+	 * Cierra el origen sin entregar el documento, para trabajos que no llegan a una impresora
+	 */
+	public void close() throws IOException {
+		delivered_ = true;
+		source_.close();
+	}
+
+	/**
+	 * Destino que descarta lo que se escribe en él
+	 */
+	private static class NullChannel implements WritableByteChannel {
+		public int write(ByteBuffer src) {
+			int written = src.remaining();
+			src.position(src.limit());
+			return written;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {}
+	}
+}
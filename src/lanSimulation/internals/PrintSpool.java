@@ -0,0 +1,285 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+A <em>PrintSpool</em> queues the jobs delivered to a <em>Printer</em> and prints them one after the
+other on a worker thread of its own, so a packet that reaches the printer only enqueues its job.
+A slow printer then delays its own jobs only, not the requests for other printers.
+<p>When the queue is full a delivery waits until there is room (BLOCK), fails right away (REJECT)
+or fails when there is still no room after the timeout (TIMEOUT). A job that is not queued is
+reported with {@link ReportSink#SPOOL_FULL}.</p>
+<p>A request whose job is queued succeeds right away: its result only means that the job was queued.
+The accounting of a queued job, or {@link ReportSink#OUTPUT_FAILED} when the printer fails to print
+it, is reported from the worker thread later on, so the report of the request must accept events
+from another thread; the delivery or the failure of the job is counted in the metrics of the network
+at that moment too. {@link #awaitIdle()} waits until all queued jobs have been printed.</p>
+ */
+public class PrintSpool {
+	/**
+	 * Políticas cuando la cola de la impresora está llena
+	 */
+	public static final byte BLOCK = 0, REJECT = 1, TIMEOUT = 2;
+
+	private final Node.Printer printer_;
+	private final ArrayBlockingQueue<Job> queue_;
+	private final byte policy_;
+	private final long timeoutNanos_;
+	private final Thread worker_;
+	/**
+    Holds the metrics where printed and failed jobs are counted, null to not count them.
+	 */
+	private final NetworkMetrics metrics_;
+
+	/**
+    Counts the jobs queued or being printed, and whether the spool still accepts jobs; guarded by #this.
+	 */
+	private int pending_;
+	private boolean closed_;
+
+	/**
+    Holds the measurements of the spool; the wait and completion counters are only written by #worker_.
+	 */
+	private final LongAdder submitted_, rejected_;
+	private final AtomicInteger maxDepth_;
+	private volatile long completed_, failed_, totalWaitNanos_, maxWaitNanos_;
+
+	/**
+Construct a <em>PrintSpool</em> for #printer that queues up to #capacity jobs, and start its worker.
+#timeoutMillis is how long a delivery waits for room in the queue with the TIMEOUT policy.
+<p><strong>Precondition:</strong> printer.spool() == null & capacity > 0 & policy in (BLOCK, REJECT, TIMEOUT) & timeoutMillis >= 0;</p>
+	 */
+	public PrintSpool(Node.Printer printer, int capacity, byte policy, long timeoutMillis) {
+		this(printer, capacity, policy, timeoutMillis, null);
+	}
+
+	/**
+Construct a <em>PrintSpool</em> like {@link #PrintSpool(Node.Printer, int, byte, long)} that counts every
+job it prints or fails to print in #metrics.
+	 */
+	public PrintSpool(Node.Printer printer, int capacity, byte policy, long timeoutMillis, NetworkMetrics metrics) {
+		assert (printer.spool() == null) & (capacity > 0) & (policy >= BLOCK) & (policy <= TIMEOUT) & (timeoutMillis >= 0);
+		printer_ = printer;
+		metrics_ = metrics;
+		queue_ = new ArrayBlockingQueue<Job>(capacity);
+		policy_ = policy;
+		timeoutNanos_ = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		submitted_ = new LongAdder();
+		rejected_ = new LongAdder();
+		maxDepth_ = new AtomicInteger();
+		pending_ = 0;
+		closed_ = false;
+		worker_ = new Thread(new Runnable() {
+			public void run() {
+				work();
+			}
+		}, "PrintSpool-" + printer.name_);
+		worker_.setDaemon(true);
+		worker_.start();
+		printer.attach(this);
+	}
+
+	/**
+	 * Encola un trabajo para la impresora, esperando según la política si la cola está llena
+	 * @param packet paquete con el documento a imprimir
+	 * @param report donde se informa de la impresión
+	 * @return true si el trabajo se ha encolado
+	 */
+	public boolean submit(Packet packet, ReportSink report) {
+		synchronized (this) {
+			if (closed_) {
+				rejected_.increment();
+				return false;
+			};
+			pending_++;
+		}
+		Job job = new Job(packet, report, System.nanoTime());
+		boolean queued;
+		try {
+			switch (policy_) {
+			case BLOCK:
+				queue_.put(job);
+				queued = true;
+				break;
+			case TIMEOUT:
+				queued = queue_.offer(job, timeoutNanos_, TimeUnit.NANOSECONDS);
+				break;
+			default:
+				queued = queue_.offer(job);
+			};
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			queued = false;
+		}
+		if (queued) {
+			submitted_.increment();
+			int depth = queue_.size();
+			for (int max = maxDepth_.get(); (depth > max) && ! maxDepth_.compareAndSet(max, depth); max = maxDepth_.get()) {}
+		} else {
+			rejected_.increment();
+			done();
+		};
+		return queued;
+	}
+
+	/**
+	 * Bucle del hilo de la impresora: imprime los trabajos en el orden en que se encolaron
+	 */
+	private void work() {
+		while (true) {
+			Job job;
+			try {
+				job = queue_.take();
+			} catch (InterruptedException exc) {
+				return;
+			}
+			long wait = System.nanoTime() - job.queuedAt_;
+			totalWaitNanos_ += wait;
+			if (wait > maxWaitNanos_) {maxWaitNanos_ = wait;};
+			try {
+				if (job.packet_.deliver(printer_, job.report_)) {
+					completed_++;
+					if (metrics_ != null) {metrics_.delivered();};
+				} else {
+					failed_++;
+					if (metrics_ != null) {metrics_.failed(job.packet_.failure_);};
+				};
+			} catch (RuntimeException exc) {
+				failed_++;
+				if (metrics_ != null) {metrics_.failed(ReportSink.OUTPUT_FAILED);};
+				job.report_.deliveryFailed(ReportSink.OUTPUT_FAILED);
+			} finally {
+				done();
+			}
+		}
+	}
+
+	private synchronized void done() {
+		pending_--;
+		if (pending_ == 0) {notifyAll();};
+	}
+
+	/**
+	 * Espera hasta que se hayan impreso todos los trabajos encolados
+	 */
+	public synchronized void awaitIdle() throws InterruptedException {
+		while (pending_ > 0) {
+			wait();
+		}
+	}
+
+	/**
+	 * Deja de aceptar trabajos, espera a que se impriman los encolados, detiene el hilo y
+	 * desconecta la cola de la impresora, que vuelve a imprimir en el hilo que entrega el paquete
+	 */
+	public void shutdown() throws InterruptedException {
+		synchronized (this) {
+			closed_ = true;
+		}
+		awaitIdle();
+		worker_.interrupt();
+		worker_.join();
+		printer_.attach(null);
+	}
+
+	/**
+	 * @return impresora a la que pertenece la cola
+	 */
+	public Node.Printer printer() {
+		return printer_;
+	}
+
+	/**
+	 * @return número de trabajos esperando en la cola
+	 */
+	public int depth() {
+		return queue_.size();
+	}
+
+	/**
+	 * @return máximo número de trabajos que han esperado a la vez en la cola
+	 */
+	public int maxDepth() {
+		return maxDepth_.get();
+	}
+
+	/**
+	 * @return número de trabajos encolados
+	 */
+	public long submitted() {
+		return submitted_.sum();
+	}
+
+	/**
+	 * @return número de trabajos rechazados por tener la cola llena o cerrada
+	 */
+	public long rejected() {
+		return rejected_.sum();
+	}
+
+	/**
+	 * @return número de trabajos impresos
+	 */
+	public long completed() {
+		return completed_;
+	}
+
+	/**
+	 * @return número de trabajos que fallaron al imprimirse
+	 */
+	public long failed() {
+		return failed_;
+	}
+
+	/**
+	 * @return tiempo medio en nanosegundos que un trabajo espera en la cola antes de imprimirse
+	 */
+	public long averageWaitNanos() {
+		long started = completed_ + failed_;
+		return (started == 0) ? 0 : totalWaitNanos_ / started;
+	}
+
+	/**
+	 * @return tiempo máximo en nanosegundos que un trabajo ha esperado en la cola
+	 */
+	public long maxWaitNanos() {
+		return maxWaitNanos_;
+	}
+
+	/**
+	 * Trabajo encolado: el paquete, dónde informar y cuándo se encoló
+	 */
+	private static class Job {
+		final Packet packet_;
+		final ReportSink report_;
+		final long queuedAt_;
+
+		Job(Packet packet, ReportSink report, long queuedAt) {
+			packet_ = packet;
+			report_ = report;
+			queuedAt_ = queuedAt;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+A <em>RecordingReportSink</em> keeps the events it receives and renders them only when asked,
+see {@link #replay(ReportSink)} and {@link #renderOn(Writer)}.
+Events are recorded as a kind and references to the names and documents involved; author and title
+of an accounting event are copied, since they may be views that change after the call.
+Not thread-safe: use one per thread.
+ */
+public class RecordingReportSink implements ReportSink {
+	private static final byte PRINT_REQUESTED = 0, BROADCAST_REQUESTED = 1, HOP = 2, BROADCAST_ACCEPTED = 3,
+			BROADCAST_COMPLETED = 4, ACCOUNTING_ASCII = 5, ACCOUNTING_POSTSCRIPT = 6, DELIVERY_FAILED = 7;
+
+	/**
+    Holds the kind of each event, and for each event the index of its first argument in #args_.
+	 */
+	private byte[] kinds_;
+	private int[] firstArg_;
+	private int events_;
+	private Object[] args_;
+	private int argCount_;
+
+	public RecordingReportSink() {
+		kinds_ = new byte[64];
+		firstArg_ = new int[64];
+		args_ = new Object[64];
+		events_ = 0;
+		argCount_ = 0;
+	}
+
+	public void printRequested(String workstation, String document, String printer) {
+		record(PRINT_REQUESTED, workstation, document, printer);
+	}
+
+	public void broadcastRequested() {
+		record(BROADCAST_REQUESTED);
+	}
+
+	public void hop(String node) {
+		record(HOP, node);
+	}
+
+	public void broadcastAccepted(String node) {
+		record(BROADCAST_ACCEPTED, node);
+	}
+
+	public void broadcastCompleted() {
+		record(BROADCAST_COMPLETED);
+	}
+
+	public void accounting(CharSequence author, CharSequence title, boolean postscript) {
+		record(postscript ? ACCOUNTING_POSTSCRIPT : ACCOUNTING_ASCII, author.toString(), title.toString());
+	}
+
+	public void deliveryFailed(byte reason) {
+		record(DELIVERY_FAILED, Byte.valueOf(reason));
+	}
+
+	/**
+	 * @return número de eventos registrados
+	 */
+	public int size() {
+		return events_;
+	}
+
+	/**
+	 * Olvida todos los eventos registrados
+	 */
+	public void clear() {
+		Arrays.fill(args_, 0, argCount_, null);
+		events_ = 0;
+		argCount_ = 0;
+	}
+
+	/**
+	 * Vuelve a enviar los eventos registrados, en orden, a otro sink
+	 * @param sink destino de los eventos
+	 */
+	public void replay(ReportSink sink) {
+		for (int i = 0; i < events_; i++) {
+			int a = firstArg_[i];
+			switch (kinds_[i]) {
+			case PRINT_REQUESTED:
+				sink.printRequested((String) args_[a], (String) args_[a + 1], (String) args_[a + 2]);
+				break;
+			case BROADCAST_REQUESTED:
+				sink.broadcastRequested();
+				break;
+			case HOP:
+				sink.hop((String) args_[a]);
+				break;
+			case BROADCAST_ACCEPTED:
+				sink.broadcastAccepted((String) args_[a]);
+				break;
+			case BROADCAST_COMPLETED:
+				sink.broadcastCompleted();
+				break;
+			case ACCOUNTING_ASCII:
+			case ACCOUNTING_POSTSCRIPT:
+				sink.accounting((CharSequence) args_[a], (CharSequence) args_[a + 1], kinds_[i] == ACCOUNTING_POSTSCRIPT);
+				break;
+			case DELIVERY_FAILED:
+				sink.deliveryFailed(((Byte) args_[a]).byteValue());
+				break;
+			};
+		}
+	}
+
+	/**
+	 * Escribe los eventos registrados con el formato clásico del informe
+	 * @param report donde se escribe el informe
+	 */
+	public void renderOn(Writer report) {
+		replay(new WriterReportSink(report));
+	}
+
+	private void record(byte kind) {
+		if (events_ == kinds_.length) {
+			kinds_ = Arrays.copyOf(kinds_, events_ * 2);
+			firstArg_ = Arrays.copyOf(firstArg_, events_ * 2);
+		};
+		if (argCount_ + 3 > args_.length) {
+			args_ = Arrays.copyOf(args_, args_.length * 2);
+		};
+		kinds_[events_] = kind;
+		firstArg_[events_++] = argCount_;
+	}
+
+	private void record(byte kind, Object arg) {
+		record(kind);
+		args_[argCount_++] = arg;
+	}
+
+	private void record(byte kind, Object arg1, Object arg2) {
+		record(kind, arg1);
+		args_[argCount_++] = arg2;
+	}
+
+	private void record(byte kind, Object arg1, Object arg2, Object arg3) {
+		record(kind, arg1, arg2);
+		args_[argCount_++] = arg3;
+	}
+}
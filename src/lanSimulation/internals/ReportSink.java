@@ -0,0 +1,76 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+/**
+A <em>ReportSink</em> receives what happens while the network handles requests, as typed events.
+Events carry references to existing names and documents only; turning them into text is left to
+the sink (see {@link WriterReportSink} for the classic report format), so sinks that do not need
+text never pay for formatting.
+ */
+public interface ReportSink {
+	/**
+	 * Motivos por los que no se entrega un trabajo de impresión
+	 */
+	public static final byte DESTINATION_NOT_FOUND = 0, DESTINATION_NOT_A_PRINTER = 1, SPOOL_FULL = 2,
+			OUTPUT_FAILED = 3;
+
+	/**
+	 * Una workstation pide imprimir un documento en una impresora
+	 */
+	public void printRequested(String workstation, String document, String printer);
+
+	/**
+	 * Se pide enviar un paquete broadcast a todos los nodos
+	 */
+	public void broadcastRequested();
+
+	/**
+	 * Un nodo pasa el paquete al siguiente nodo del token ring
+	 * @param node nombre del nodo
+	 */
+	public void hop(String node);
+
+	/**
+	 * Un nodo acepta el paquete broadcast
+	 * @param node nombre del nodo
+	 */
+	public void broadcastAccepted(String node);
+
+	/**
+	 * El paquete broadcast ha recorrido todo el token ring
+	 */
+	public void broadcastCompleted();
+
+	/**
+	 * Una impresora registra el autor y el título del trabajo entregado;
+	 * author y title sólo son válidos durante la llamada, el sink que los guarde debe copiarlos
+	 * @param author autor del documento
+	 * @param title título del documento
+	 * @param postscript true si es un documento postscript, false si es ASCII
+	 */
+	public void accounting(CharSequence author, CharSequence title, boolean postscript);
+
+	/**
+	 * Un trabajo de impresión no se ha podido entregar
+	 * @param reason DESTINATION_NOT_FOUND, DESTINATION_NOT_A_PRINTER, SPOOL_FULL o OUTPUT_FAILED
+	 */
+	public void deliveryFailed(byte reason);
+}
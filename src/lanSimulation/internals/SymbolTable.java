@@ -0,0 +1,89 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+A <em>SymbolTable</em> gives every node name a dense integer id, in order of registration.
+Ids never change and are never reused, so packets can compare ids instead of names while
+travelling the token ring; the names are only needed for reporting.
+Lookups do not lock; registrations are serialized.
+ */
+public class SymbolTable {
+	/**
+	 * Id de los nombres no registrados
+	 */
+	public static final int NO_ID = -1;
+
+	private final ConcurrentHashMap<String, Integer> ids_;
+	/**
+    Holds the names indexed by id; replaced by a larger copy when full.
+	 */
+	private volatile String[] names_;
+	private int size_;
+
+	public SymbolTable() {
+		ids_ = new ConcurrentHashMap<String, Integer>();
+		names_ = new String[16];
+		size_ = 0;
+	}
+
+	/**
+	 * Registra un nombre, si no lo estaba ya
+	 * @param name nombre a registrar
+	 * @return id del nombre
+	 */
+	public synchronized int register(String name) {
+		Integer id = ids_.get(name);
+		if (id != null) {return id.intValue();};
+		String[] names = names_;
+		if (size_ == names.length) {names = Arrays.copyOf(names, size_ * 2);};
+		names[size_] = name;
+		names_ = names;
+		ids_.put(name, Integer.valueOf(size_));
+		return size_++;
+	}
+
+	/**
+	 * @param name nombre buscado
+	 * @return id del nombre o NO_ID si no está registrado
+	 */
+	public int idOf(String name) {
+		Integer id = ids_.get(name);
+		return (id == null) ? NO_ID : id.intValue();
+	}
+
+	/**
+	 * @param id id de un nombre registrado
+	 * @return el nombre con ese id
+	 */
+	public String nameOf(int id) {
+		return names_[id];
+	}
+
+	/**
+	 * @return número de nombres registrados
+	 */
+	public synchronized int size() {
+		return size_;
+	}
+}
@@ -0,0 +1,112 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+A <em>TextView</em> is a range of characters of another text, used instead of a copy of the range.
+ */
+public final class TextView implements CharSequence {
+	private CharSequence text_;
+	private int start_, end_;
+
+	/**
+	 * Vista sobre un texto completo
+	 * @param text texto completo
+	 */
+	public TextView(CharSequence text) {
+		this(text, 0, text.length());
+	}
+
+	/**
+	 * @param text texto completo
+	 * @param start posición del primer carácter del rango
+	 * @param end posición siguiente al último carácter del rango
+	 */
+	public TextView(CharSequence text, int start, int end) {
+		assert (0 <= start) & (start <= end) & (end <= text.length());
+		text_ = text;
+		start_ = start;
+		end_ = end;
+	}
+
+	/**
+	 * Cambia el rango de la vista; sólo lo usa DocumentHeader al reutilizar sus vistas
+	 */
+	void set(CharSequence text, int start, int end) {
+		assert (0 <= start) & (start <= end) & (end <= text.length());
+		text_ = text;
+		start_ = start;
+		end_ = end;
+	}
+
+	/**
+	 * @return número de bytes del texto codificado en UTF-8, sin codificarlo
+	 */
+	public static long utf8Length(CharSequence text) {
+		long bytes = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isSurrogate(c)) {
+				//a surrogate pair encodes as 4 bytes, 2 per char
+				bytes += 2;
+			} else {
+				bytes += 3;
+			};
+		}
+		return bytes;
+	}
+
+	public int length() {
+		return end_ - start_;
+	}
+
+	public char charAt(int index) {
+		return text_.charAt(start_ + index);
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		return new TextView(text_, start_ + start, start_ + end);
+	}
+
+	/**
+	 * Escribe el rango sin copiarlo a un String intermedio
+	 * @param out donde se escribe
+	 */
+	public void writeTo(Writer out) throws IOException {
+		if (text_ instanceof String) {
+			out.write((String) text_, start_, end_ - start_);
+		} else {
+			for (int i = start_; i < end_; i++) {
+				out.write(text_.charAt(i));
+			}
+		};
+	}
+
+	public String toString() {
+		return text_.subSequence(start_, end_).toString();
+	}
+}
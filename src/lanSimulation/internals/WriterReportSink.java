@@ -0,0 +1,139 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+A <em>WriterReportSink</em> renders the events of a <em>ReportSink</em> on a <em>Writer</em>, in the
+report format the network always used. The writer is flushed once at the end of each request.
+ */
+public class WriterReportSink implements ReportSink {
+	/**
+    Holds the stream the report is written on.
+	 */
+	private final Writer report_;
+
+	public WriterReportSink(Writer report) {
+		report_ = report;
+	}
+
+	public void printRequested(String workstation, String document, String printer) {
+		try {
+			report_.write("'");
+			report_.write(workstation);
+			report_.write("' requests printing of '");
+			report_.write(document);
+			report_.write("' on '");
+			report_.write(printer);
+			report_.write("' ...\n");
+		} catch (IOException exc) {
+			// just ignore
+		};
+	}
+
+	public void broadcastRequested() {
+		write("Broadcast Request\n");
+	}
+
+	public void hop(String node) {
+		try {
+			report_.write("\tNode '");
+			report_.write(node);
+			report_.write("' passes packet on.\n");
+		} catch (IOException exc) {
+			// just ignore
+		};
+	}
+
+	public void broadcastAccepted(String node) {
+		try {
+			report_.write("\tNode '");
+			report_.write(node);
+			report_.write("' accepts broadcase packet.\n");
+		} catch (IOException exc) {
+			// just ignore
+		};
+	}
+
+	public void broadcastCompleted() {
+		write(">>> Broadcast travelled whole token ring.\n\n");
+		flush();
+	}
+
+	public void accounting(CharSequence author, CharSequence title, boolean postscript) {
+		try {
+			report_.write("\tAccounting -- author = '");
+			writeText(author);
+			report_.write("' -- title = '");
+			writeText(title);
+			report_.write("'\n");
+			report_.write(postscript ? ">>> Postscript job delivered.\n\n" : ">>> ASCII Print job delivered.\n\n");
+		} catch (IOException exc) {
+			// just ignore
+		};
+		flush();
+	}
+
+	/**
+	 * Escribe un texto sin copiarlo cuando es una vista sobre otro texto
+	 */
+	private void writeText(CharSequence text) throws IOException {
+		if (text instanceof TextView) {
+			((TextView) text).writeTo(report_);
+		} else {
+			report_.append(text);
+		};
+	}
+
+	public void deliveryFailed(byte reason) {
+		switch (reason) {
+		case DESTINATION_NOT_FOUND:
+			write(">>> Destinition not found, print job cancelled.\n\n");
+			break;
+		case SPOOL_FULL:
+			write(">>> Printer spool is full, print job cancelled.\n\n");
+			break;
+		case OUTPUT_FAILED:
+			write(">>> Printer output failed, print job cancelled.\n\n");
+			break;
+		default:
+			write(">>> Destinition is not a printer, print job cancelled.\n\n");
+		};
+		flush();
+	}
+
+	private void write(String text) {
+		try {
+			report_.write(text);
+		} catch (IOException exc) {
+			// just ignore
+		};
+	}
+
+	private void flush() {
+		try {
+			report_.flush();
+		} catch (IOException exc) {
+			// just ignore
+		};
+	}
+}
@@ -25,6 +25,8 @@ import junit.framework.*;
 import junit.extensions.*;
 import java.lang.AssertionError;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class LANTests extends TestCase {
 
@@ -185,6 +187,921 @@ public class LANTests extends TestCase {
 		   network.requestBroadcast(report));
     }
 
+    public void testNodeIndex() {
+        Network network = Network.DefaultExample();
+        NodeIndex index = network.index();
+
+        assertEquals("size ", 4, index.size());
+        assertEquals("typeOf printer ", NodeIndex.PRINTER, index.typeOf("Andy"));
+        assertEquals("typeOf workstation ", NodeIndex.WORKSTATION, index.typeOf("Hans"));
+        assertEquals("typeOf node ", NodeIndex.NODE, index.typeOf("n1"));
+        assertEquals("typeOf unknown ", NodeIndex.UNKNOWN, index.typeOf("UnknownPrinter"));
+        assertEquals("hopDistance Filip -> Andy ", 3, network.hopDistance("Filip", "Andy"));
+        assertEquals("hopDistance Hans -> Filip ", 2, network.hopDistance("Hans", "Filip"));
+        assertEquals("hopDistance Filip -> Filip ", 4, network.hopDistance("Filip", "Filip"));
+        assertEquals("hopDistance unknown ", -1, network.hopDistance("Filip", "UnknownPrinter"));
+    }
+
+    public void testConsistencyVerdict() {
+        Network network = Network.DefaultExample();
+        StringWriter report = new StringWriter(500);
+        long version = network.topologyVersion();
+
+        assertTrue("isConsistent ", network.isConsistent());
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+        assertEquals("topologyVersion (after request) ", version, network.topologyVersion());
+        network.index().nodeAt(3).nextNode_ = network.firstNode_.nextNode_;
+        network.reindex();
+        assertTrue("topologyVersion (after reindex) ", version != network.topologyVersion());
+        assertFalse("isConsistent (not circular) ", network.isConsistent());
+        assertFalse("consistentNetwork (not circular) ", network.consistentNetwork());
+    }
+
+    public void testTopologyMutation() {
+        Network network = Network.DefaultExample();
+        NodeIndex before = network.index();
+        StringWriter report = new StringWriter(500);
+
+        assertTrue("insertAfter ", network.insertAfter("Hans", new Node().new Printer("Bart")));
+        assertFalse("insertAfter (name taken) ", network.insertAfter("Hans", new Node("n1")));
+        assertFalse("insertAfter (unknown node) ", network.insertAfter("Unknown", new Node("n2")));
+        assertEquals("toString (after insertAfter) ",
+            "Workstation Filip [Workstation] -> Node n1 [Node] -> Workstation Hans [Workstation] -> Printer Bart [Printer] -> Printer Andy [Printer] ->  ... ",
+            network.toString());
+        assertEquals("old snapshot size ", 4, before.size());
+        assertTrue("isConsistent (after insertAfter) ", network.isConsistent());
+        assertTrue("PrintSuccess (inserted printer) ",
+            network.requestWorkstationPrintsDocument("Filip", "Hello World", "Bart", report));
+
+        assertNotNull("remove ", network.remove("Andy"));
+        assertNull("remove (unknown node) ", network.remove("Andy"));
+        assertTrue("isConsistent (after remove) ", network.isConsistent());
+        assertFalse("PrintFailure (removed printer) ",
+            network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+
+        assertNotNull("replace ", network.replace("Filip", new Node().new Workstation("Serge")));
+        assertTrue("hasWorkstation (replacement) ", network.hasWorkstation("Serge"));
+        assertFalse("hasWorkstation (replaced) ", network.hasWorkstation("Filip"));
+        assertEquals("toString (after replace) ",
+            "Workstation Serge [Workstation] -> Node n1 [Node] -> Workstation Hans [Workstation] -> Printer Bart [Printer] ->  ... ",
+            network.toString());
+        assertTrue("isConsistent (after replace) ", network.isConsistent());
+        assertTrue("consistentNetwork (after replace) ", network.consistentNetwork());
+    }
+
+    public void testTopologyFromScratch() {
+        Network network = new Network(1);
+
+        assertTrue("insertAfter (empty network) ", network.insertAfter(null, new Node().new Workstation("Filip")));
+        assertFalse("isConsistent (no printer) ", network.isConsistent());
+        assertTrue("insertAfter ", network.insertAfter("Filip", new Node().new Printer("Andy")));
+        assertTrue("isConsistent ", network.isConsistent());
+        assertTrue("consistentNetwork ", network.consistentNetwork());
+    }
+
+    public void testConcurrentRequests() throws Exception {
+        Network network = Network.DefaultExample();
+        RequestProcessor processor = new RequestProcessor(network, 4);
+        List<Future<RequestProcessor.Outcome>> prints = new ArrayList<Future<RequestProcessor.Outcome>>();
+        StringWriter expected = new StringWriter(500);
+
+        network.requestWorkstationPrintsDocument("Hans", "Hello World", "Andy", expected);
+        for (int i = 0; i < 100; i++) {
+            prints.add(processor.submitPrint("Hans", "Hello World", "Andy"));
+        }
+        Future<RequestProcessor.Outcome> broadcast = processor.submitBroadcast();
+        for (Future<RequestProcessor.Outcome> print : prints) {
+            assertTrue("PrintSuccess ", print.get().succeeded());
+            assertEquals("report ", expected.toString(), print.get().report());
+        }
+        assertTrue("Broadcast ", broadcast.get().succeeded());
+        processor.shutdown();
+    }
+
+    public void testEventSimulation() {
+        Network network = Network.DefaultExample();
+        EventSimulation simulation = new EventSimulation(network, 10, 100);
+
+        simulation.setForwardingDelay("n1", 5);
+        int first = simulation.schedulePrint(0, "Filip", "Andy");
+        int second = simulation.schedulePrint(0, "Filip", "Andy");
+        int unknown = simulation.schedulePrint(0, "Filip", "UnknownPrinter");
+        int workstation = simulation.schedulePrint(0, "Filip", "Hans");
+        int broadcast = simulation.scheduleBroadcast(50);
+        simulation.run();
+
+        assertTrue("PrintSuccess ", simulation.succeeded(first));
+        assertEquals("latency ", 125, simulation.latencyOf(first));
+        assertEquals("latency (waits for printer) ", 225, simulation.latencyOf(second));
+        assertFalse("PrintFailure (UnkownPrinter) ", simulation.succeeded(unknown));
+        assertFalse("PrintFailure (print on Workstation) ", simulation.succeeded(workstation));
+        assertTrue("Broadcast ", simulation.succeeded(broadcast));
+        assertEquals("latency broadcast ", 35, simulation.latencyOf(broadcast));
+    }
+
+    public void testBatchedPrint() {
+        Network network = Network.DefaultExample();
+        StringWriter expected = new StringWriter(500), report = new StringWriter(500);
+        List<Network.PrintJob> jobs = new ArrayList<Network.PrintJob>();
+        String[][] requests = {{"Filip", "Hello World", "Andy"}, {"Hans", "!PS author:Hans.title:Hi.", "Andy"},
+            {"Filip", "Hello World", "UnknownPrinter"}, {"Filip", "Hello World", "Hans"}, {"Filip", "Hello again", "Andy"}};
+        boolean[] expectedResults = new boolean[requests.length];
+
+        for (int i = 0; i < requests.length; i++) {
+            expectedResults[i] = network.requestWorkstationPrintsDocument(requests[i][0], requests[i][1], requests[i][2], expected);
+            jobs.add(new Network.PrintJob(requests[i][0], requests[i][1], requests[i][2]));
+        }
+        network.metrics().reset();
+        boolean[] results = network.requestWorkstationsPrintDocuments(jobs, report);
+        for (int i = 0; i < requests.length; i++) {
+            assertEquals("result " + i, expectedResults[i], results[i]);
+        }
+        //Filip's jobs share one pass of 3 hops to Andy, Hans' job takes its own pass of 1 hop
+        assertEquals("hops ", 3 + 1, network.metrics().getHops());
+        assertEquals("printLatency count ", requests.length, network.metrics().printLatency().count());
+        assertEquals("printRequests ", requests.length, network.metrics().getPrintRequests());
+        assertEquals("forwardedBy (Filip) ", 1, network.metrics().forwardedBy("Filip"));
+
+        StringWriter single = new StringWriter(500), pass = new StringWriter(500);
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", single);
+        jobs.clear();
+        jobs.add(new Network.PrintJob("Filip", "Hello World", "Andy"));
+        network.requestWorkstationsPrintDocuments(jobs, pass);
+        assertEquals("report (one job) ", single.toString(), pass.toString());
+        assertTrue("report (delivered in order) ", report.toString().indexOf("'Hans' requests printing")
+            < report.toString().lastIndexOf("author = 'Hans'"));
+    }
+
+    public void testReportSinks() {
+        Network network = Network.DefaultExample();
+        StringWriter expected = new StringWriter(500), rendered = new StringWriter(500);
+        RecordingReportSink recording = new RecordingReportSink();
+        CountingReportSink counting = new CountingReportSink();
+
+        network.requestWorkstationPrintsDocument("Filip", "!PS author:Filip.title:Hello.", "Andy", expected);
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "Hans", expected);
+        network.requestBroadcast(expected);
+        network.requestWorkstationPrintsDocument("Filip", "!PS author:Filip.title:Hello.", "Andy", recording);
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "Hans", recording);
+        network.requestBroadcast(recording);
+        recording.renderOn(rendered);
+        assertEquals("rendered report ", expected.toString(), rendered.toString());
+
+        recording.replay(counting);
+        assertEquals("requests ", 3, counting.requests());
+        assertEquals("hops ", 7, counting.hops());
+        assertEquals("broadcastAccepts ", 4, counting.broadcastAccepts());
+        assertEquals("deliveries ", 1, counting.deliveries());
+        assertEquals("failures ", 1, counting.failures());
+    }
+
+    public void testAsyncReportWriter() throws IOException {
+        Network network = Network.DefaultExample();
+        StringWriter expected = new StringWriter(500), target = new StringWriter(500);
+        AsyncReportWriter report = new AsyncReportWriter(target, 64, 2, AsyncReportWriter.BLOCK);
+
+        for (int i = 0; i < 50; i++) {
+            network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", expected);
+            network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+        }
+        report.sync();
+        assertEquals("report (after sync) ", expected.toString(), target.toString());
+        network.requestBroadcast(expected);
+        network.requestBroadcast(report);
+        report.close();
+        assertEquals("report (after close) ", expected.toString(), target.toString());
+        assertEquals("droppedChars ", 0, report.droppedChars());
+
+        final int[] writes = {0};
+        Writer counting = new FilterWriter(new StringWriter(500)) {
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                writes[0]++;
+                super.write(cbuf, off, len);
+            }
+        };
+        report = new AsyncReportWriter(counting);
+        for (int i = 0; i < 1000; i++) {
+            network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+        }
+        report.sync();
+        assertTrue("large chunks ", writes[0] < 10);
+        report.close();
+    }
+
+    public void testCompactRing() throws IOException {
+        Network network = Network.DefaultExample();
+        CompactRing ring = CompactRing.from(network.index());
+        StringBuilder buf = new StringBuilder(100);
+        CountingReportSink report = new CountingReportSink();
+
+        ring.printOn(buf);
+        assertEquals("printOn ", network.toString(), buf.toString());
+        assertTrue("isConsistent ", ring.isConsistent());
+        assertEquals("route to printer ", ring.positionOf("Andy"),
+            ring.route(ring.positionOf("Filip"), ring.positionOf("Andy"), report));
+        assertEquals("hops ", 3, report.hops());
+        assertEquals("route to unknown ", ring.positionOf("Filip"), ring.route(ring.positionOf("Filip"), -1, null));
+        ring.link(ring.positionOf("Andy"), ring.positionOf("n1"));
+        assertFalse("isConsistent (not circular) ", ring.isConsistent());
+        for (int i = 0; i < 1000; i++) {
+            network.insertAfter("n1", new Node("m" + i));
+        }
+        CompactRing grown = new CompactRing(4);
+        buf.setLength(0);
+        grown.printOn(buf);
+        assertEquals("printOn (empty) ", "", buf.toString());
+        for (int i = 0; i < network.index().size(); i++) {
+            grown.append(network.index().nodeAt(i).name_, NodeIndex.typeOf(network.index().nodeAt(i)));
+        }
+        grown.printOn(buf);
+        assertEquals("printOn (grown) ", network.toString(), buf.toString());
+
+        network = Network.DefaultExample();
+        CompactNetwork compact = CompactNetwork.from(network);
+        StringWriter expected = new StringWriter(500), actual = new StringWriter(500);
+        String[][] requests = {{"Filip", "!PS author:Filip.title:Hello.", "Andy"}, {"Hans", "Hello World", "Andy"},
+            {"Filip", "Hello World", "UnknownPrinter"}, {"Filip", "Hello World", "Hans"}};
+        for (int i = 0; i < requests.length; i++) {
+            assertEquals("result " + i,
+                network.requestWorkstationPrintsDocument(requests[i][0], requests[i][1], requests[i][2], expected),
+                compact.requestWorkstationPrintsDocument(requests[i][0], requests[i][1], requests[i][2], actual));
+        }
+        assertTrue("broadcast ", network.requestBroadcast(expected) & compact.requestBroadcast(actual));
+        assertEquals("report (compact) ", expected.toString(), actual.toString());
+        assertTrue("isConsistent (compact) ", compact.isConsistent());
+    }
+
+    public void testSymbolTable() {
+        Network network = Network.DefaultExample();
+        SymbolTable symbols = network.symbols();
+        NodeIndex index = network.index();
+
+        assertEquals("size ", 4, symbols.size());
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals("id_ ", symbols.idOf(index.nodeAt(i).name_), index.nodeAt(i).id_);
+            assertEquals("nameOf ", index.nodeAt(i).name_, symbols.nameOf(index.nodeAt(i).id_));
+        }
+        assertEquals("idOf unknown ", SymbolTable.NO_ID, symbols.idOf("UnknownPrinter"));
+        network.insertAfter("Andy", new Node().new Printer("Bart"));
+        assertEquals("id_ (inserted) ", 4, network.index().lookup("Bart").id_);
+        assertTrue("PrintSuccess (inserted printer) ",
+            network.requestWorkstationPrintsDocument("Hans", "Hello World", "Bart", new StringWriter(100)));
+        assertEquals("forwardedBy (before inserted) ", 1, network.metrics().forwardedBy("Andy"));
+    }
+
+    public void testStreamingOutput() throws IOException {
+        Network network = Network.DefaultExample();
+        StringBuffer buf = new StringBuffer(500);
+        StringWriter out = new StringWriter(500);
+
+        network.firstNode_.printOn(buf);
+        network.firstNode_.printHTMLOn(buf);
+        network.firstNode_.printXMLOn(buf);
+        network.firstNode_.printOn(out);
+        network.firstNode_.printHTMLOn(out);
+        network.firstNode_.printXMLOn(out);
+        assertEquals("streamed output ", buf.toString(), out.toString());
+    }
+
+    public void testTopologyExport() throws IOException {
+        Network network = Network.DefaultExample();
+        Node last = network.index().nodeAt(3);
+        for (int i = 0; i < 20000; i++) {
+            Node n = new Node("nodo-\u00f1-" + i);
+            n.nextNode_ = last.nextNode_;
+            last.nextNode_ = n;
+            last = n;
+        }
+        File file = File.createTempFile("lanExport", ".xml");
+        StringBuffer buf = new StringBuffer(500);
+
+        try {
+            for (byte format = TopologyExport.TEXT; format <= TopologyExport.XML; format++) {
+                buf.setLength(0);
+                if (format == TopologyExport.TEXT) {network.firstNode_.printOn(buf);};
+                if (format == TopologyExport.HTML) {network.firstNode_.printHTMLOn(buf);};
+                if (format == TopologyExport.XML) {network.firstNode_.printXMLOn(buf);};
+                byte[] expected = buf.toString().getBytes("UTF-8");
+                for (int mapped = 0; mapped < 2; mapped++) {
+                    long size = TopologyExport.export(network.firstNode_, format, file.toPath(), mapped == 1);
+                    assertEquals("size ", expected.length, size);
+                    assertTrue("contents ", Arrays.equals(expected, java.nio.file.Files.readAllBytes(file.toPath())));
+                }
+            }
+
+            //a rendering that fails halfway leaves the file cut after what was written
+            last.nextNode_ = null;
+            try {
+                TopologyExport.export(network.firstNode_, TopologyExport.XML, file.toPath(), true);
+                fail("broken ring exported");
+            } catch (RuntimeException exc) {
+                // just ignore
+            };
+            byte[] written = java.nio.file.Files.readAllBytes(file.toPath());
+            assertTrue("partial export ", written.length > 0);
+            assertTrue("no padding ", written[written.length - 1] != 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testTopologyLoader() throws IOException {
+        Network network = Network.DefaultExample();
+        StringBuffer xml = new StringBuffer(500), html = new StringBuffer(500);
+
+        network.firstNode_.printXMLOn(xml);
+        network.firstNode_.printHTMLOn(html);
+        Network fromXML = TopologyLoader.load(new StringReader(xml.toString()));
+        Network fromHTML = TopologyLoader.load(new StringReader(html.toString()));
+        assertTrue("consistentNetwork (XML) ", fromXML.consistentNetwork());
+        assertTrue("consistentNetwork (HTML) ", fromHTML.consistentNetwork());
+        assertEquals("toString (XML) ", network.toString(), fromXML.toString());
+        assertEquals("toString (HTML) ", network.toString(), fromHTML.toString());
+        assertTrue("hasWorkstation ", fromXML.hasWorkstation("Hans"));
+        assertTrue("PrintSuccess ",
+            fromHTML.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", new StringWriter(100)));
+
+        String[] broken = {"<network>\n\tNode n1 [Node]\n\tPrinter n1 [Printer]\n</network>\n",
+                           "<network>\n\tNode n1 [Node]\n\tFoo x [Foo]\n</network>\n",
+                           "<UL>\n\t<LI> <node>n1</node> </LI>\n\t<LI> <foo>x</foo> </LI>\n</UL>\n"};
+        for (int i = 0; i < broken.length; i++) {
+            try {
+                TopologyLoader.load(new StringReader(broken[i]));
+                fail("loaded " + broken[i]);
+            } catch (IOException exc) {
+                assertTrue("line number " + i, exc.getMessage().startsWith("Line 3: "));
+            }
+        }
+    }
+
+    public void testTopologySnapshot() throws IOException {
+        Network network = Network.DefaultExample();
+        File file = File.createTempFile("lanSnapshot", ".bin");
+        StringBuilder buf = new StringBuilder(100);
+
+        try {
+            TopologySnapshot.save(network.index(), file.toPath());
+            TopologySnapshot snapshot = TopologySnapshot.map(file.toPath());
+            assertEquals("size ", 4, snapshot.size());
+            assertEquals("nameOf ", "Andy", snapshot.nameOf(3));
+            assertEquals("typeOf ", NodeIndex.PRINTER, snapshot.typeOf(3));
+            assertEquals("next ", 0, snapshot.next(3));
+            Network loaded = snapshot.toNetwork();
+            assertTrue("consistentNetwork ", loaded.consistentNetwork());
+            assertEquals("toString ", network.toString(), loaded.toString());
+            snapshot.toCompactRing().printOn(buf);
+            assertEquals("toCompactRing ", network.toString(), buf.toString());
+
+            Node outer = new Node();
+            Network accented = Network.fromNodes(Arrays.asList(
+                outer.new Workstation("Jos\u00e9"), outer.new Printer("\u00c5sa \u6f22")));
+            TopologySnapshot.save(accented.index(), file.toPath());
+            snapshot = TopologySnapshot.map(file.toPath());
+            assertEquals("nameOf (UTF-8) ", "\u00c5sa \u6f22", snapshot.nameOf(1));
+            assertEquals("toString (UTF-8) ", accented.toString(), snapshot.toNetwork().toString());
+
+            RandomAccessFile huge = new RandomAccessFile(file, "rw");
+            huge.setLength(Integer.MAX_VALUE + 1L);//sparse, so it takes no disk space
+            huge.close();
+            try {
+                TopologySnapshot.map(file.toPath());
+                fail("IOException expected (too large)");
+            } catch (IOException exc) {
+                assertTrue(exc.getMessage().startsWith("LAN topology snapshot too large to map"));
+            }
+            TopologySnapshot.save(network.index(), file.toPath());
+
+            RandomAccessFile patched = new RandomAccessFile(file, "rw");
+            patched.seek(16);
+            patched.write(new byte[] {99, 0, 0, 0});//next of position 0 beyond the token ring
+            patched.close();
+            try {
+                TopologySnapshot.map(file.toPath());
+                fail("IOException expected (next)");
+            } catch (IOException exc) {
+                assertEquals("Corrupt LAN topology snapshot", exc.getMessage());
+            }
+            patched = new RandomAccessFile(file, "rw");
+            patched.seek(8);
+            patched.write(new byte[] {-1, -1, -1, -1});//negative node count
+            patched.close();
+            try {
+                TopologySnapshot.map(file.toPath());
+                fail("IOException expected (size)");
+            } catch (IOException exc) {
+                assertEquals("Corrupt LAN topology snapshot", exc.getMessage());
+            }
+
+            FileWriter corrupt = new FileWriter(file);
+            corrupt.write("not a snapshot at all");
+            corrupt.close();
+            try {
+                TopologySnapshot.map(file.toPath());
+                fail("IOException expected");
+            } catch (IOException exc) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static String[] legacyHeader(String message) {
+        String author = "Unknown", title = "Untitled";
+        int startPos, endPos;
+        if (message.startsWith("!PS")) {
+            startPos = message.indexOf("author:");
+            if (startPos >= 0) {
+                endPos = message.indexOf(".", startPos + 7);
+                if (endPos < 0) {endPos = message.length();};
+                author = message.substring(startPos + 7, endPos);};
+            startPos = message.indexOf("title:");
+            if (startPos >= 0) {
+                endPos = message.indexOf(".", startPos + 6);
+                if (endPos < 0) {endPos = message.length();};
+                title = message.substring(startPos + 6, endPos);};
+        } else {
+            title = "ASCII DOCUMENT";
+            if (message.length() >= 16) {author = message.substring(8, 16);};
+        };
+        return new String[] {author, title};
+    }
+
+    public void testDocumentHeader() {
+        String[] documents = {"!PS Hello World in postscript.author:Serge.title:Hello.", "Hello World in ASCII",
+                              "!PS ...author:Filip;title:Hello;", "!PS author:.title:.", "!PS title:X author:Y",
+                              "!PS no header", "!PS title:author:Z.", "!PS", "short", "", "ASCII document, long enough",
+                              "!PS author:a.b.title:c.d", "!PS .author:.x.title:"};
+        for (int i = 0; i < documents.length; i++) {
+            DocumentHeader header = new DocumentHeader(documents[i]);
+            String[] expected = legacyHeader(documents[i]);
+            assertEquals("author of " + documents[i], expected[0], header.author().toString());
+            assertEquals("title of " + documents[i], expected[1], header.title().toString());
+            assertEquals("postscript " + documents[i], documents[i].startsWith("!PS"), header.isPostscript());
+        }
+
+        DocumentHeader header = new DocumentHeader("!PS Hello World in postscript.author:Serge.title:Hello.");
+        assertEquals("author offset", 37, header.authorOffset());
+        assertEquals("author length", 5, header.authorLength());
+        assertTrue("author is a view", header.author() instanceof TextView);
+        DocumentHeader reused = DocumentHeader.forThread();
+        assertSame("one header per thread", reused, DocumentHeader.forThread());
+        CharSequence author = reused.parse("!PS author:Serge.title:Hello.").author();
+        assertSame("reused view", author, reused.parse("!PS author:Filip.").author());
+        assertEquals("reparsed author", "Filip", author.toString());
+        assertEquals("reparsed title", DocumentHeader.UNTITLED, reused.title());
+        reused.clear();
+        assertEquals("cleared view", 0, author.length());
+        assertEquals("cleared author", DocumentHeader.UNKNOWN_AUTHOR, reused.author());
+
+        StringWriter report = new StringWriter();
+        Packet packet = new Packet("!PS author:Filip.title:Hello.", "n1", "p1");
+        assertTrue("delivered", packet.print(new Node().new Printer("p1"), report));
+        assertEquals("accounting", "\tAccounting -- author = 'Filip' -- title = 'Hello'\n>>> Postscript job delivered.\n\n",
+                     report.toString());
+    }
+
+    public void testStreamedPayload() throws IOException {
+        Network network = Network.DefaultExample();
+        Node.Printer andy = (Node.Printer) network.index().lookup("Andy");
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        andy.connect(java.nio.channels.Channels.newChannel(printed));
+        StringBuilder body = new StringBuilder("!PS author:Filip.title:Large.");
+        while (body.length() < 3 * Payload.CHUNK_SIZE) {body.append("Hello World ");};
+        byte[] document = body.toString().getBytes("ISO-8859-1");
+        File file = File.createTempFile("lanPayload", ".ps");
+
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(document);
+            out.close();
+            StringWriter report = new StringWriter(500);
+            assertTrue("PrintSuccess (file) ",
+                network.requestWorkstationPrintsDocument("Filip", Payload.open(file.toPath()), "Andy", report));
+            assertTrue("accounting (file) ",
+                report.toString().indexOf("Accounting -- author = 'Filip' -- title = 'Large'") > 0);
+            assertTrue("printed (file) ", Arrays.equals(document, printed.toByteArray()));
+
+            java.nio.channels.FileChannel region = java.nio.channels.FileChannel.open(file.toPath(), java.nio.file.StandardOpenOption.READ);
+            report = new StringWriter(500);
+            assertFalse("PrintFailure (file too short) ", network.requestWorkstationPrintsDocument("Filip",
+                new Payload(region, 0, document.length + 10), "Andy", report));
+            assertTrue("report (file too short) ",
+                report.toString().endsWith(">>> Printer output failed, print job cancelled.\n\n"));
+            assertEquals("failuresOutput (file too short) ", 1, network.metrics().getFailuresOutput());
+        } finally {
+            file.delete();
+        }
+
+        printed.reset();
+        Payload payload = new Payload(java.nio.channels.Channels.newChannel(new ByteArrayInputStream(document)), 64);
+        assertEquals("header ", 64, payload.header().length());
+        StringWriter report = new StringWriter(500), expected = new StringWriter(500);
+        assertTrue("PrintSuccess (channel) ",
+            network.requestWorkstationPrintsDocument("Filip", payload, "Andy", report));
+        network.requestWorkstationPrintsDocument("Filip", payload.header(), "Andy", expected);
+        assertEquals("report (channel) ", expected.toString(), report.toString());
+        assertTrue("printed (channel) ", Arrays.equals(document, printed.toByteArray()));
+
+        final boolean[] closed = {false};
+        payload = new Payload(new java.nio.channels.ReadableByteChannel() {
+            public int read(java.nio.ByteBuffer dst) {return -1;}
+            public boolean isOpen() {return ! closed[0];}
+            public void close() {closed[0] = true;}
+        });
+        assertFalse("PrintFailure (not a printer) ",
+            network.requestWorkstationPrintsDocument("Filip", payload, "Hans", new StringWriter(100)));
+        assertTrue("closed ", closed[0]);
+
+        report = new StringWriter(500);
+        payload = new Payload(java.nio.channels.Channels.newChannel(
+            new ByteArrayInputStream("!PS author:Jos\u00e9.title:Se\u00f1or.".getBytes("UTF-8"))));
+        assertTrue("PrintSuccess (UTF-8) ", network.requestWorkstationPrintsDocument("Filip", payload, "Andy", report));
+        assertTrue("accounting (UTF-8) ",
+            report.toString().indexOf("author = 'Jos\u00e9' -- title = 'Se\u00f1or'") > 0);
+        //a header of 15 bytes cuts the 2 bytes of the \u00e9 in half
+        payload = new Payload(java.nio.channels.Channels.newChannel(
+            new ByteArrayInputStream("!PS author:Jos\u00e9.".getBytes("UTF-8"))), 15);
+        assertEquals("header (cut character) ", "!PS author:Jos", payload.header());
+        payload.close();
+
+        andy.connect(new java.nio.channels.WritableByteChannel() {
+            public int write(java.nio.ByteBuffer src) throws IOException {
+                throw new IOException("printer on fire");
+            }
+            public boolean isOpen() {return true;}
+            public void close() {}
+        });
+        report = new StringWriter(500);
+        assertFalse("PrintFailure (output) ",
+            network.requestWorkstationPrintsDocument("Filip", payloadOf("!PS author:Filip.title:Fire."), "Andy", report));
+        assertTrue("report (output) ", report.toString().endsWith(">>> Printer output failed, print job cancelled.\n\n"));
+        assertEquals("failuresOutput ", 2, network.metrics().getFailuresOutput());
+        andy.connect(null);
+    }
+
+    private static Payload payloadOf(String document) throws IOException {
+        return new Payload(java.nio.channels.Channels.newChannel(new ByteArrayInputStream(document.getBytes("ISO-8859-1"))));
+    }
+
+    public void testPrintSpool() throws Exception {
+        Network network = Network.DefaultExample();
+        Node.Printer andy = (Node.Printer) network.index().lookup("Andy");
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        andy.connect(new java.nio.channels.WritableByteChannel() {
+            public int write(java.nio.ByteBuffer src) {
+                started.countDown();
+                try {release.await();} catch (InterruptedException exc) {};
+                int written = src.remaining();
+                src.position(src.limit());
+                return written;
+            }
+            public boolean isOpen() {return true;}
+            public void close() {}
+        });
+        PrintSpool spool = network.spool("Andy", 1, PrintSpool.REJECT, 0);
+        assertSame("spool ", spool, andy.spool());
+
+        StringWriter first = new StringWriter(200), second = new StringWriter(200), third = new StringWriter(200);
+        assertTrue("queued (first) ",
+            network.requestWorkstationPrintsDocument("Filip", payloadOf("!PS author:Filip.title:One."), "Andy", first));
+        started.await();
+        assertTrue("queued (second) ",
+            network.requestWorkstationPrintsDocument("Filip", payloadOf("!PS author:Filip.title:Two."), "Andy", second));
+        assertFalse("rejected (third) ",
+            network.requestWorkstationPrintsDocument("Filip", payloadOf("!PS author:Filip.title:Three."), "Andy", third));
+        assertTrue("report (third) ", third.toString().endsWith(">>> Printer spool is full, print job cancelled.\n\n"));
+        assertEquals("depth ", 1, spool.depth());
+
+        release.countDown();
+        spool.awaitIdle();
+        assertTrue("accounting (first) ", first.toString().indexOf("title = 'One'") > 0);
+        assertTrue("accounting (second) ", second.toString().indexOf("title = 'Two'") > 0);
+        assertEquals("submitted ", 2, spool.submitted());
+        assertEquals("rejected ", 1, spool.rejected());
+        assertEquals("completed ", 2, spool.completed());
+        assertEquals("maxDepth ", 1, spool.maxDepth());
+        assertTrue("maxWaitNanos ", spool.maxWaitNanos() > 0);
+        assertEquals("deliveries (spooled) ", 2, network.metrics().getDeliveries());
+        assertEquals("failures (spool full) ", 1, network.metrics().getFailuresSpoolFull());
+
+        spool.shutdown();
+        assertNull("spool (shut down) ", andy.spool());
+        StringWriter report = new StringWriter(200);
+        assertTrue("PrintSuccess ", network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+        assertTrue("accounting (no spool) ", report.toString().indexOf("Accounting") > 0);
+
+        spool = network.spool("Andy", 1, PrintSpool.TIMEOUT, 10);
+        andy.connect(null);
+        assertTrue("queued (timeout) ", network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", new StringWriter(200)));
+        spool.shutdown();
+        assertEquals("completed (timeout) ", 1, spool.completed());
+
+        spool = network.spool("Andy", 1, PrintSpool.BLOCK, 0);
+        andy.connect(new java.nio.channels.WritableByteChannel() {
+            public int write(java.nio.ByteBuffer src) throws IOException {
+                throw new IOException("printer on fire");
+            }
+            public boolean isOpen() {return true;}
+            public void close() {}
+        });
+        StringWriter failing = new StringWriter(200);
+        assertTrue("queued (failing) ",
+            network.requestWorkstationPrintsDocument("Filip", payloadOf("!PS author:Filip.title:Fire."), "Andy", failing));
+        spool.awaitIdle();
+        assertTrue("report (failing) ", failing.toString().endsWith(">>> Printer output failed, print job cancelled.\n\n"));
+        assertEquals("failed ", 1, spool.failed());
+        assertEquals("failures (output) ", 1, network.metrics().getFailuresOutput());
+        assertEquals("deliveries (not the failed job) ", 4, network.metrics().getDeliveries());
+        spool.shutdown();
+        andy.connect(null);
+    }
+
+    public void testAccountingLedger() throws Exception {
+        Network network = Network.DefaultExample();
+        AccountingLedger ledger = network.ledger();
+        StringWriter report = new StringWriter(500);
+
+        network.requestWorkstationPrintsDocument("Filip", "!PS author:Serge.title:Hello.", "Andy", report);
+        network.requestWorkstationPrintsDocument("Hans", "!PS author:Serge.title:Bye.", "Andy", report);
+        network.requestWorkstationPrintsDocument("Hans", "Hello World", "Andy", report);
+        network.requestWorkstationPrintsDocument("Hans", "Hello World", "n1", report);
+        assertEquals("jobs (author) ", 2, ledger.jobs(AccountingLedger.AUTHOR, "Serge"));
+        assertEquals("bytes (author) ", 29 + 27, ledger.bytes(AccountingLedger.AUTHOR, "Serge"));
+        assertEquals("jobs (Unknown) ", 1, ledger.jobs(AccountingLedger.AUTHOR, "Unknown"));
+        assertEquals("jobs (printer) ", 3, ledger.jobs(AccountingLedger.PRINTER, "Andy"));
+        assertEquals("jobs (workstation) ", 2, ledger.jobs(AccountingLedger.WORKSTATION, "Hans"));
+        assertEquals("jobs (not a printer) ", 0, ledger.jobs(AccountingLedger.PRINTER, "n1"));
+        String document = "!PS author:\u00d1and\u00fa.title:\ud83d\udda8.";
+        network.requestWorkstationPrintsDocument("Hans", document, "Andy", report);
+        assertEquals("bytes (UTF-8) ", document.getBytes("UTF-8").length,
+                     ledger.bytes(AccountingLedger.AUTHOR, "\u00d1and\u00fa"));
+        ledger.record(new StringBuilder("Serge"), "Andy", "Hans", 0);
+        assertEquals("jobs (author by contents) ", 3, ledger.jobs(AccountingLedger.AUTHOR, "Serge"));
+
+        final Network shared = network;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 400; i++) {
+            pool.submit(new Runnable() {
+                public void run() {
+                    shared.requestWorkstationPrintsDocument("Filip", "!PS author:Bart.", "Andy", new StringWriter(200));
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        assertEquals("jobs (concurrent) ", 400, ledger.jobs(AccountingLedger.AUTHOR, "Bart"));
+        assertEquals("bytes (concurrent) ", 400 * 16, ledger.bytes(AccountingLedger.AUTHOR, "Bart"));
+
+        AccountingLedger.Snapshot snapshot = ledger.snapshot();
+        StringWriter export = new StringWriter(200);
+        snapshot.printOn(export);
+        assertTrue("export ", export.toString().indexOf("author,Bart,400,6400\n") > 0);
+        assertTrue("export ", export.toString().indexOf("printer,Andy,405,") > 0);
+
+        final CountDownLatch exported = new CountDownLatch(2);
+        ledger.exportEvery(5, new StringWriter() {
+            public void flush() {exported.countDown();}
+        });
+        assertTrue("periodic export ", exported.await(10, TimeUnit.SECONDS));
+        ledger.close();
+
+        ledger.record("Doe, John", "Andy", "Filip", 10);
+        export = new StringWriter(200);
+        ledger.snapshot().printOn(export);
+        assertTrue("export (escaped) ", export.toString().indexOf("author,\"Doe, John\",1,10\n") > 0);
+        ledger.reset();
+        assertEquals("jobs (reset) ", 0, ledger.jobs(AccountingLedger.AUTHOR, "Bart"));
+        assertFalse("names (reset) ", ledger.snapshot().names(AccountingLedger.AUTHOR).iterator().hasNext());
+        ledger.record("Bart", "Andy", "Filip", 10);
+        assertEquals("jobs (after reset) ", 1, ledger.jobs(AccountingLedger.AUTHOR, "Bart"));
+    }
+
+    public void testNetworkMetrics() throws Exception {
+        Network network = Network.DefaultExample();
+        NetworkMetrics metrics = network.metrics();
+        StringWriter report = new StringWriter(500);
+
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "UnknownPrinter", report);
+        network.requestWorkstationPrintsDocument("Filip", "Hello World", "n1", report);
+        network.requestBroadcast(report);
+        assertEquals("printRequests ", 3, metrics.getPrintRequests());
+        assertEquals("broadcastRequests ", 1, metrics.getBroadcastRequests());
+        assertEquals("deliveries ", 1, metrics.getDeliveries());
+        assertEquals("failures (not found) ", 1, metrics.getFailuresDestinationNotFound());
+        assertEquals("failures (not a printer) ", 1, metrics.getFailuresDestinationNotAPrinter());
+        assertEquals("hops ", 3 + 4, metrics.getHops());
+        assertEquals("maxHopsPerRequest ", 4, metrics.getMaxHopsPerRequest());
+        assertEquals("meanBroadcastFanOut ", 4.0, metrics.getMeanBroadcastFanOut(), 0.0);
+        assertEquals("forwardedBy (Filip) ", 2, metrics.forwardedBy("Filip"));
+        assertEquals("forwardedBy (Andy) ", 1, metrics.forwardedBy("Andy"));
+        assertEquals("printLatency count ", 3, metrics.printLatency().count());
+        assertTrue("printLatencyP99 ", metrics.getPrintLatencyP99() <= metrics.getMaxPrintLatency());
+        assertEquals("snapshot ", Long.valueOf(2), metrics.snapshot().get("forwarded.Filip"));
+
+        List<Network.PrintJob> jobs = new ArrayList<Network.PrintJob>();
+        jobs.add(new Network.PrintJob("Hans", "Hello World", "Andy"));
+        network.requestWorkstationsPrintDocuments(jobs, report);
+        assertEquals("deliveries (batch) ", 2, metrics.getDeliveries());
+        assertEquals("forwardedBy (Hans) ", 3, metrics.forwardedBy("Hans"));
+
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {histogram.record(i);};
+        assertEquals("percentile 50 ", 63, histogram.percentile(0.5));
+        assertEquals("percentile 100 ", 100, histogram.percentile(1.0));
+
+        javax.management.ObjectName name = network.registerMBean("testNetworkMetrics");
+        try {
+            javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            assertEquals("MBean Deliveries ", Long.valueOf(2), server.getAttribute(name, "Deliveries"));
+        } finally {
+            java.lang.management.ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        metrics.reset();
+        assertEquals("reset ", 0, metrics.forwardedBy("Filip"));
+    }
+
+    public void testLoadDriver() throws InterruptedException {
+        Network network = TopologyGenerator.generate(7, 20, 3, 50);
+        assertTrue("consistentNetwork ", network.consistentNetwork());
+        assertEquals("size ", 73, network.index().size());
+        assertEquals("printerCount ", 3, network.index().printerCount());
+        assertEquals("same seed ", network.toString(), TopologyGenerator.generate(7, 20, 3, 50).toString());
+        assertFalse("other seed ", network.toString().equals(TopologyGenerator.generate(8, 20, 3, 50).toString()));
+
+        LoadDriver driver = new LoadDriver(network, 7);
+        LoadDriver.Result result = driver.run(0, 100, 2);
+        assertTrue("requests ", result.requests() > 0);
+        assertEquals("print failures ", 0, result.failed(LoadDriver.PRINT));
+        assertEquals("unknown destination successes ", 0, result.succeeded(LoadDriver.UNKNOWN_DESTINATION));
+        assertEquals("not a printer successes ", 0, result.succeeded(LoadDriver.NOT_A_PRINTER));
+        assertEquals("broadcast failures ", 0, result.failed(LoadDriver.BROADCAST));
+        assertEquals("deliveries ", result.succeeded(LoadDriver.PRINT), network.metrics().getDeliveries());
+
+        driver.setMix(1, 0, 0, 0);
+        result = driver.run(1000, 200, 1);
+        assertEquals("only prints ", result.requests(), result.succeeded(LoadDriver.PRINT));
+        assertTrue("rate ", (result.requests() > 0) & (result.requests() <= 200));
+    }
+
+    public void testParallelBroadcast() {
+        Network network = TopologyGenerator.generate(11, 3000, 100, 17000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        StringWriter sequential = new StringWriter(), parallel = new StringWriter(), replayed = new StringWriter();
+
+        try {
+            assertTrue("BroadcastSuccess ", network.requestBroadcast(sequential));
+            assertTrue("BroadcastSuccess (parallel) ", network.requestBroadcast(parallel, pool));
+            assertTrue("BroadcastSuccess (sink) ", network.requestBroadcast(new WriterReportSink(replayed), pool));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("report (parallel) ", sequential.toString(), parallel.toString());
+        assertEquals("report (sink) ", sequential.toString(), replayed.toString());
+        assertEquals("forwardedBy (parallel) ", 3, network.metrics().forwardedBy("pr7"));
+
+        Network small = Network.DefaultExample();
+        StringWriter report = new StringWriter(), expected = new StringWriter();
+        small.requestBroadcast(expected);
+        small.requestBroadcast(report, ForkJoinPool.commonPool());
+        assertEquals("report (small) ", expected.toString(), report.toString());
+    }
+
+    private static Network ringOf(String... lines) throws IOException {
+        StringBuilder text = new StringBuilder(100);
+        for (String line : lines) {
+            text.append(line).append("\n");
+        }
+        return TopologyLoader.load(new StringReader(text.toString()));
+    }
+
+    public void testMultiRingNetwork() throws Exception {
+        MultiRingNetwork campus = new MultiRingNetwork();
+        Network left = ringOf("Workstation wa [Workstation]", "Node na [Node]", "Bridge ba [Bridge]", "Printer pa [Printer]");
+        Network middle = ringOf("Bridge bb1 [Bridge]", "Node nb [Node]", "Bridge bb2 [Bridge]", "Printer pb [Printer]",
+            "Workstation wb [Workstation]");
+        Network right = ringOf("<LI> <bridge>bc</bridge> </LI>", "Printer pc [Printer]", "Workstation wc [Workstation]");
+
+        assertEquals("addRing ", 0, campus.addRing(left));
+        assertEquals("addRing ", 1, campus.addRing(middle));
+        assertEquals("addRing ", 2, campus.addRing(right));
+        campus.link("ba", "bb1");
+        campus.link("bb2", "bc");
+        try {
+            campus.addRing(ringOf("Workstation wa [Workstation]", "Printer px [Printer]"));
+            fail("addRing accepted a name used on another token ring");
+        } catch (IllegalArgumentException exc) {
+            assertEquals("ringOf (after duplicate) ", 0, campus.ringOf("wa"));
+            assertEquals("ringOf (not added) ", -1, campus.ringOf("px"));
+        };
+        assertEquals("ringOf ", 2, campus.ringOf("pc"));
+        assertEquals("ringOf (unknown) ", -1, campus.ringOf("UFO"));
+        assertEquals("toString ", "Bridge bb1 [Bridge] -> Node nb [Node] -> Bridge bb2 [Bridge] -> Printer pb [Printer] -> Workstation wb [Workstation] ->  ... ",
+            middle.toString());
+
+        StringWriter report = new StringWriter(500);
+        assertTrue("PrintSuccess (two bridges) ", campus.requestWorkstationPrintsDocument("wa", "Hello", "pc", report));
+        String text = report.toString();
+        int na = text.indexOf("'na'"), bb1 = text.indexOf("'bb1'"), bc = text.indexOf("'bc'");
+        assertTrue("route ", (na > 0) && (na < bb1) && (bb1 < bc));
+        assertEquals("not flooded ", -1, text.indexOf("'pb'"));
+        assertEquals("forwardedBy (middle) ", 1, middle.metrics().forwardedBy("nb"));
+        assertEquals("forwardedBy (middle printer) ", 0, middle.metrics().forwardedBy("pb"));
+        assertEquals("jobs ", 1, right.ledger().jobs(AccountingLedger.PRINTER, "pc"));
+
+        assertTrue("PrintSuccess (back) ", campus.requestWorkstationPrintsDocument("wc", "Hello", "pb", new StringWriter(100)));
+        assertFalse("PrintFailure (unknown) ", campus.requestWorkstationPrintsDocument("wa", "Hello", "UFO", new StringWriter(100)));
+        assertFalse("PrintFailure (not a printer) ", campus.requestWorkstationPrintsDocument("wa", "Hello", "wc", new StringWriter(100)));
+
+        StringWriter submitted = new StringWriter(500);
+        try {
+            Future<Boolean> result = campus.submitPrint("wa", "Hello", "pc", new WriterReportSink(submitted));
+            assertTrue("PrintSuccess (submitted) ", result.get(10, TimeUnit.SECONDS).booleanValue());
+            assertEquals("report (submitted) ", text, submitted.toString());
+            assertFalse("PrintFailure (submitted) ",
+                campus.submitPrint("wa", "Hello", "nb", new WriterReportSink(new StringWriter(100))).get().booleanValue());
+
+            StringWriter broadcast = new StringWriter(500), replayed = new StringWriter(500);
+            assertTrue("BroadcastSuccess ", campus.requestBroadcast(broadcast));
+            assertTrue("BroadcastSuccess (sink) ", campus.requestBroadcast(new WriterReportSink(replayed)));
+            assertEquals("report (sink) ", broadcast.toString(), replayed.toString());
+            assertTrue("broadcast order ", broadcast.toString().indexOf("'wa'") < broadcast.toString().indexOf("'wc'"));
+
+            final CountDownLatch hopping = new CountDownLatch(1), release = new CountDownLatch(1);
+            Future<Boolean> inFlight = campus.submitPrint("wa", "Hello", "pc", new WriterReportSink(new StringWriter(500)) {
+                public void hop(String node) {
+                    hopping.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException exc) {
+                        // just ignore
+                    };
+                    super.hop(node);
+                }
+            });
+            assertTrue("hopping ", hopping.await(10, TimeUnit.SECONDS));
+            campus.shutdown();
+            try {
+                campus.submitPrint("wa", "Hello", "pc", new WriterReportSink(new StringWriter(100)));
+                fail("RejectedExecutionException expected");
+            } catch (RejectedExecutionException exc) {
+                // expected
+            };
+            release.countDown();
+            assertTrue("PrintSuccess (in flight) ", inFlight.get(10, TimeUnit.SECONDS).booleanValue());
+        } finally {
+            campus.shutdown();
+        }
+    }
+
+    public void testPartitionedNetwork() throws IOException {
+        Network network = TopologyGenerator.generate(5, 12, 4, 20);
+        File file = File.createTempFile("lanSnapshot", ".bin");
+        TopologySnapshot.save(network.index(), file.toPath());
+        PartitionedNetwork partitioned = PartitionedNetwork.launch(file.toPath(), 3);
+
+        try {
+            assertEquals("segmentCount ", 3, partitioned.segmentCount());
+            assertEquals("segmentOf ", 2, partitioned.segmentOf(35));
+            String[] printers = {"pr0", "pr3", "ws4", "UFO"};
+            for (int ws = 0; ws < 12; ws += 5) {
+                for (String printer : printers) {
+                    StringWriter expected = new StringWriter(500), report = new StringWriter(500);
+                    String document = "author: ws" + ws + " title: test " + printer;
+                    boolean result = network.requestWorkstationPrintsDocument("ws" + ws, document, printer, expected);
+                    assertEquals("result ws" + ws + " " + printer, result,
+                        partitioned.requestWorkstationPrintsDocument("ws" + ws, document, printer, report));
+                    assertEquals("report ws" + ws + " " + printer, expected.toString(), report.toString());
+                }
+            }
+
+            StringWriter expected = new StringWriter(500), report = new StringWriter(500);
+            RecordingReportSink recording = new RecordingReportSink();
+            assertTrue("BroadcastSuccess ", network.requestBroadcast(expected));
+            assertTrue("BroadcastSuccess (partitioned) ", partitioned.requestBroadcast(report));
+            assertTrue("BroadcastSuccess (sink) ", partitioned.requestBroadcast(recording));
+            assertEquals("report (broadcast) ", expected.toString(), report.toString());
+            assertEquals("events (broadcast) ", 2 + 2 * 36, recording.size());
+        } finally {
+            partitioned.close();
+            file.delete();
+        }
+    }
+
+    public void testSimulateInParallel() throws IOException {
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream(8192), parallel = new ByteArrayOutputStream(8192);
+        PrintStream out = new PrintStream(sequential, false, "UTF-8");
+        for (int i = 0; i < 10; i++) {
+            LANSimulation.simulate(out);
+        }
+        out.flush();
+        out = new PrintStream(parallel, false, "UTF-8");
+        assertTrue("completed ", LANSimulation.simulateInParallel(10, 3, out));
+        out.flush();
+        assertEquals("output in order ", sequential.toString("UTF-8"), parallel.toString("UTF-8"));
+    }
+
     // TODO - Leer documentación y pasar test // DONE
     /**
 Test whether output routines work as expected.